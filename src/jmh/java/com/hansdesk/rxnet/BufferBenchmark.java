@@ -0,0 +1,98 @@
+package com.hansdesk.rxnet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffer의 byte 단위 read/write와 bulk read/write를 비교한다.
+ * chunkSize가 작을수록 chunk 경계를 많이 넘나들게 된다.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BufferBenchmark {
+    @Param({"64", "1024"})
+    int chunkSize;
+
+    @Param({"4096"})
+    int length;
+
+    @Param({"pooled", "unpooled"})
+    String allocatorType;
+
+    private BufferAllocator allocator;
+    private byte[] data;
+    private byte[] dst;
+
+    @Setup
+    public void setup() {
+        allocator = "pooled".equals(allocatorType) ? BufferAllocators.pooled() : BufferAllocators.unpooled();
+        data = new byte[length];
+        for (int inx = 0; inx < length; inx++)
+            data[inx] = (byte) inx;
+        dst = new byte[length];
+    }
+
+    @Benchmark
+    public int writeByteAtATime() {
+        Buffer buffer = new Buffer(allocator, chunkSize);
+        for (byte b : data)
+            buffer.write(b);
+        int size = buffer.size();
+        buffer.release();
+        return size;
+    }
+
+    @Benchmark
+    public int writeBulk() {
+        Buffer buffer = new Buffer(allocator, chunkSize);
+        buffer.write(data);
+        int size = buffer.size();
+        buffer.release();
+        return size;
+    }
+
+    @Benchmark
+    public void readByteAtATime(Blackhole blackhole) {
+        Buffer buffer = new Buffer(allocator, chunkSize);
+        buffer.write(data);
+        while (buffer.readable())
+            blackhole.consume(buffer.read());
+        buffer.release();
+    }
+
+    @Benchmark
+    public int readBulk() {
+        Buffer buffer = new Buffer(allocator, chunkSize);
+        buffer.write(data);
+        int read = buffer.read(dst);
+        buffer.release();
+        return read;
+    }
+
+    @Benchmark
+    public long readInts() {
+        Buffer buffer = new Buffer(allocator, chunkSize);
+        buffer.write(data);
+        long sum = 0;
+        while (buffer.size() >= 4)
+            sum += buffer.readInt();
+        buffer.release();
+        return sum;
+    }
+}
@@ -0,0 +1,81 @@
+package com.hansdesk.rxnet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * length field(4 byte) + payload 형식의 frame을 mark()/reset()으로 decode한다.
+ * 데이터가 segmentSize씩 나누어 도착하므로 frame이 완성되지 않으면 reset()하고 다음 segment를 기다린다.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+    @Param({"32", "512"})
+    int frameLength;
+
+    @Param({"100", "1500"})
+    int segmentSize;
+
+    private static final int FRAMES = 64;
+
+    private byte[] stream;
+
+    @Setup
+    public void setup() {
+        Buffer buffer = new Buffer(1024);
+        for (int inx = 0; inx < FRAMES; inx++) {
+            buffer.writeInt(frameLength);
+            for (int jnx = 0; jnx < frameLength; jnx++)
+                buffer.write(jnx);
+        }
+        stream = new byte[buffer.size()];
+        buffer.read(stream);
+    }
+
+    @Benchmark
+    public int decode() {
+        Buffer buffer = new Buffer(BufferAllocators.pooled(), 1024);
+        int frames = 0;
+        for (int offset = 0; offset < stream.length; offset += segmentSize) {
+            buffer.write(stream, offset, Math.min(segmentSize, stream.length - offset));
+            frames += decodeFrames(buffer);
+        }
+        buffer.release();
+        return frames;
+    }
+
+    private static int decodeFrames(Buffer buffer) {
+        int frames = 0;
+        while (true) {
+            buffer.mark();
+            if (buffer.size() < 4) {
+                buffer.reset();
+                break;
+            }
+            int length = buffer.readInt();
+            if (buffer.size() < length) {
+                buffer.reset(); // frame이 완성될 때까지 기다린다.
+                break;
+            }
+            buffer.skip(length);
+            buffer.unmark();
+            frames++;
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,86 @@
+package com.hansdesk.rxnet;
+
+import io.reactivex.rxjava3.disposables.Disposable;
+import io.reactivex.rxjava3.subjects.PublishSubject;
+import io.reactivex.rxjava3.subjects.Subject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * selector thread가 이벤트를 전달하는 두 가지 방식을 비교한다.
+ * direct는 Selectable.onSignal()을 직접 호출하고, subject는 PublishSubject로 발행한다. (Integer boxing과 observer chain을 거친다)
+ * roundTrip은 다른 thread에서 SignalSource.signal()로 이벤트를 보내서 selector thread에서 처리될 때까지의 시간이다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+    private static class Receiver implements Selectable {
+        volatile long signals;
+
+        @Override
+        public SelectableChannel channel() {
+            return null;
+        }
+
+        @Override
+        public void selectionKey(SelectionKey key) {
+        }
+
+        @Override
+        public void onSignal(int ops) {
+            signals++; // 한 번에 한 thread에서만 호출된다.
+        }
+    }
+
+    private final Receiver receiver = new Receiver();
+    private final Subject<Integer> subject = PublishSubject.create();
+    private Disposable disposable;
+    private SignalSource source;
+
+    @Setup
+    public void setup() {
+        disposable = subject.subscribe(receiver::onSignal);
+        source = new SignalSource();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        disposable.dispose();
+        source.stop();
+    }
+
+    @Benchmark
+    public void direct() throws Exception {
+        receiver.onSignal(SelectionKey.OP_READ);
+    }
+
+    @Benchmark
+    public void subject() {
+        subject.onNext(SelectionKey.OP_READ);
+    }
+
+    @Benchmark
+    public void roundTrip() {
+        long target = receiver.signals + 1; // 이전 signal은 모두 처리되었다.
+        source.signal(SelectionKey.OP_READ, receiver);
+        while (receiver.signals < target)
+            Thread.onSpinWait();
+    }
+}
@@ -0,0 +1,64 @@
+package com.hansdesk.rxnet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * buffer 사이의 이동을 비교한다. write(Buffer)는 모두 복사하고 transferFrom()은 다 채워진 chunk를 복사없이 넘겨받는다.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransferBenchmark {
+    @Param({"1024", "65536"})
+    int length;
+
+    private byte[] data;
+
+    @Setup
+    public void setup() {
+        data = new byte[length];
+    }
+
+    private Buffer source() {
+        Buffer source = new Buffer(BufferAllocators.pooled(), 1024);
+        source.write(data);
+        return source;
+    }
+
+    @Benchmark
+    public int copy() {
+        Buffer source = source();
+        Buffer target = new Buffer(BufferAllocators.pooled(), 1024);
+        target.write(source);
+        int size = target.size();
+        source.release();
+        target.release();
+        return size;
+    }
+
+    @Benchmark
+    public int transfer() {
+        Buffer source = source();
+        Buffer target = new Buffer(BufferAllocators.pooled(), 1024);
+        target.transferFrom(source);
+        int size = target.size();
+        source.release();
+        target.release();
+        return size;
+    }
+}
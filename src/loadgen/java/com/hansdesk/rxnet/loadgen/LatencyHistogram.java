@@ -0,0 +1,92 @@
+package com.hansdesk.rxnet.loadgen;
+
+/**
+ * nano초 단위의 latency를 기록하는 log-linear histogram.
+ * 2의 거듭제곱 구간마다 64개의 bucket으로 나누므로 기록된 값의 상대 오차는 1/64 이하이다.
+ * thread-safe하지 않다. thread마다 하나씩 기록하고 마지막에 merge()한다.
+ */
+class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // 64
+    private static final int LINEAR_LIMIT = SUB_BUCKETS << 1; // 128 미만은 값 그대로 bucket이 된다.
+    private static final int BUCKETS = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count = 0;
+    private long sum = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = 0;
+
+    void record(long value) {
+        if (value < 0)
+            value = 0;
+        counts[indexOf(value)]++;
+        count++;
+        sum += value;
+        if (value < min)
+            min = value;
+        if (value > max)
+            max = value;
+    }
+
+    void merge(LatencyHistogram other) {
+        for (int inx = 0; inx < BUCKETS; inx++)
+            counts[inx] += other.counts[inx];
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    long count() {
+        return count;
+    }
+
+    long min() {
+        return (count == 0) ? 0 : min;
+    }
+
+    long max() {
+        return max;
+    }
+
+    double mean() {
+        return (count == 0) ? 0 : (double) sum / count;
+    }
+
+    /**
+     * @param percentile 0 ~ 100 사이의 값. (예: 99.9)
+     * @return percentile에 해당하는 값. bucket의 상한값이므로 실제 값보다 최대 1/64 크다.
+     */
+    long valueAt(double percentile) {
+        if (count == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+        long seen = 0;
+        for (int inx = 0; inx < BUCKETS; inx++) {
+            seen += counts[inx];
+            if (seen >= rank)
+                return Math.min(highestValueOf(inx), max);
+        }
+        return max;
+    }
+
+    private static int indexOf(long value) {
+        if (value < LINEAR_LIMIT)
+            return (int) value;
+
+        // value >>> shift가 [64, 128) 구간에 들어가도록 shift한다.
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    private static long highestValueOf(int index) {
+        if (index < LINEAR_LIMIT)
+            return index;
+
+        int shift = (index - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+        long subBucket = (index - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,317 @@
+package com.hansdesk.rxnet.loadgen;
+
+import com.hansdesk.rxnet.Buffer;
+import com.hansdesk.rxnet.BufferAllocators;
+import com.hansdesk.rxnet.Channel;
+import com.hansdesk.rxnet.Clients;
+import com.hansdesk.rxnet.Handler;
+import com.hansdesk.rxnet.Servers;
+import com.hansdesk.rxnet.SignalSources;
+import com.hansdesk.rxnet.TcpClient;
+import com.hansdesk.rxnet.TcpServer;
+import com.hansdesk.rxnet.codec.LengthFieldFrameDecoder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 127.0.0.1의 TcpServer에 non-blocking client connection들로 부하를 주고 처리량과 latency를 측정한다.
+ * 결과는 한 줄의 JSON으로 출력되므로 RxNet version 사이의 결과를 비교할 수 있다.
+ *
+ * <pre>
+ * gradle loadgen --args="--mode=rr --connections=1000 --size=128 --responseSize=1024 --pipeline=4 --duration=30"
+ * </pre>
+ *
+ * mode
+ * <ul>
+ *     <li>echo: server는 받은 byte를 그대로 돌려준다. 요청 하나는 size byte이다.</li>
+ *     <li>rr: 요청과 응답은 4 byte length field + payload frame이다. server는 LengthFieldFrameDecoder로 요청을 자르고
+ *     responseSize byte의 응답을 보낸다.</li>
+ * </ul>
+ * port를 지정하면 내장 server를 띄우지 않고 이미 실행중인 server에 접속한다.
+ */
+public class LoadGenerator {
+    private static final String USAGE = "options: --mode=echo|rr --host=127.0.0.1 --port=0 --connections=100 --size=64"
+            + " --responseSize=64 --pipeline=1 --warmup=3 --duration=10 --clientThreads=2 --serverThreads=2 --format=json|text";
+
+    private final String mode;
+    private final String host;
+    private final int port;
+    private final int connections;
+    private final int size;
+    private final int responseSize;
+    private final int pipeline;
+    private final int warmupSeconds;
+    private final int durationSeconds;
+    private final int clientThreads;
+    private final int serverThreads;
+    private final String format;
+
+    private final byte[] request;
+    private final int responseLength; // client가 요청 하나마다 받아야 하는 byte 수.
+
+    // client loop thread마다 하나씩 기록하고 측정이 끝나면 합친다.
+    private final Queue<LatencyHistogram> histograms = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<LatencyHistogram> histogram = ThreadLocal.withInitial(() -> {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histograms.add(histogram);
+        return histogram;
+    });
+    private final AtomicLong errors = new AtomicLong();
+    private volatile boolean running = true;
+    private volatile boolean recording = false;
+
+    LoadGenerator(Map<String, String> options) {
+        mode = options.getOrDefault("mode", "echo");
+        host = options.getOrDefault("host", "127.0.0.1");
+        port = Integer.parseInt(options.getOrDefault("port", "0"));
+        connections = Integer.parseInt(options.getOrDefault("connections", "100"));
+        size = Integer.parseInt(options.getOrDefault("size", "64"));
+        responseSize = Integer.parseInt(options.getOrDefault("responseSize", "64"));
+        pipeline = Integer.parseInt(options.getOrDefault("pipeline", "1"));
+        warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "3"));
+        durationSeconds = Integer.parseInt(options.getOrDefault("duration", "10"));
+        clientThreads = Integer.parseInt(options.getOrDefault("clientThreads", "2"));
+        serverThreads = Integer.parseInt(options.getOrDefault("serverThreads", "2"));
+        format = options.getOrDefault("format", "json");
+
+        if (!mode.equals("echo") && !mode.equals("rr"))
+            throw new IllegalArgumentException("unknown mode: " + mode);
+        if ((connections <= 0) || (size <= 0) || (responseSize <= 0) || (pipeline <= 0))
+            throw new IllegalArgumentException("connections, size, responseSize and pipeline must be positive");
+
+        if (mode.equals("echo")) {
+            request = new byte[size];
+            responseLength = size;
+        } else {
+            request = frame(size);
+            responseLength = 4 + responseSize;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || (eq < 0)) {
+                System.err.println(USAGE);
+                System.exit(1);
+            }
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+
+        new LoadGenerator(options).run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        TcpServer server = null;
+        int targetPort = port;
+        if (targetPort == 0) {
+            server = startServer();
+            targetPort = server.localPort();
+        }
+
+        TcpClient client = Clients.newTcpClient()
+                .signalSourceGroup(SignalSources.newGroup(clientThreads))
+                .channelHandlerFactory(Connection::new);
+
+        // 모든 connection이 연결될 때까지의 시간으로 connections/sec를 계산한다.
+        long connectStarted = System.nanoTime();
+        List<CompletableFuture<Channel>> futures = new ArrayList<>(connections);
+        for (int inx = 0; inx < connections; inx++)
+            futures.add(client.connect(host, targetPort));
+        List<Channel> channels = new ArrayList<>(connections);
+        for (CompletableFuture<Channel> future : futures)
+            channels.add(future.get(60, TimeUnit.SECONDS));
+        long connectNanos = System.nanoTime() - connectStarted;
+
+        // 각 connection의 loop thread에서 pipeline만큼 요청을 보내기 시작한다.
+        for (Channel channel : channels)
+            channel.schedule(0, () -> ((Connection) channel.handler()).fill(channel));
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(warmupSeconds));
+        recording = true;
+        long started = System.nanoTime();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(durationSeconds));
+        recording = false;
+        long elapsedNanos = System.nanoTime() - started;
+        running = false;
+
+        for (Channel channel : channels)
+            channel.stop();
+        if (server != null)
+            server.stop();
+
+        Thread.sleep(100); // loop thread들이 마지막 기록을 끝낼 때까지 기다린다.
+        LatencyHistogram total = new LatencyHistogram();
+        for (LatencyHistogram each : histograms)
+            total.merge(each);
+
+        report(connectNanos, elapsedNanos, total);
+    }
+
+    private TcpServer startServer() {
+        TcpServer server = Servers.newTcpServer()
+                .host(host)
+                .port(0)
+                .backlog(Math.max(connections, 1024))
+                .signalSourceGroup(SignalSources.newGroup(serverThreads));
+
+        if (mode.equals("echo")) {
+            server.channelHandler(new Handler() {
+                @Override
+                public void onInbound(Channel channel, Buffer buffer) {
+                    channel.write(buffer);
+                }
+            });
+        } else {
+            byte[] response = frame(responseSize);
+            Handler responder = new Handler() {
+                @Override
+                public void onInbound(Channel channel, Buffer buffer) {
+                    buffer.skip(buffer.size()); // 요청 내용은 사용하지 않는다.
+                    send(channel, response);
+                }
+            };
+            server.channelHandlerFactory(() -> new LengthFieldFrameDecoder(4 + Math.max(size, responseSize), 4, responder));
+        }
+
+        server.start();
+        return server;
+    }
+
+    private void report(long connectNanos, long elapsedNanos, LatencyHistogram latency) {
+        double seconds = elapsedNanos / 1e9;
+        long requests = latency.count();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("rxnetVersion", System.getProperty("rxnet.version", "unknown"));
+        result.put("javaVersion", System.getProperty("java.version"));
+        result.put("mode", mode);
+        result.put("connections", connections);
+        result.put("size", size);
+        result.put("responseSize", (mode.equals("echo") ? size : responseSize));
+        result.put("pipeline", pipeline);
+        result.put("clientThreads", clientThreads);
+        result.put("serverThreads", (port == 0) ? serverThreads : 0);
+        result.put("durationSeconds", round(seconds));
+        result.put("connectsPerSec", round(connections / (connectNanos / 1e9)));
+        result.put("requests", requests);
+        result.put("requestsPerSec", round(requests / seconds));
+        result.put("bytesPerSec", Math.round(requests * (double) (request.length + responseLength) / seconds));
+        result.put("errors", errors.get());
+        result.put("latencyMinMicros", micros(latency.min()));
+        result.put("latencyMeanMicros", round(latency.mean() / 1000.0));
+        result.put("latencyP50Micros", micros(latency.valueAt(50)));
+        result.put("latencyP90Micros", micros(latency.valueAt(90)));
+        result.put("latencyP99Micros", micros(latency.valueAt(99)));
+        result.put("latencyP999Micros", micros(latency.valueAt(99.9)));
+        result.put("latencyMaxMicros", micros(latency.max()));
+
+        StringBuilder out = new StringBuilder();
+        if (format.equals("text")) {
+            for (Map.Entry<String, Object> entry : result.entrySet())
+                out.append(String.format("%-20s %s%n", entry.getKey(), entry.getValue()));
+        } else {
+            out.append('{');
+            for (Map.Entry<String, Object> entry : result.entrySet()) {
+                if (out.length() > 1)
+                    out.append(", ");
+                out.append('"').append(entry.getKey()).append("\": ");
+                Object value = entry.getValue();
+                if (value instanceof String)
+                    out.append('"').append(value).append('"');
+                else
+                    out.append(value);
+            }
+            out.append('}');
+        }
+        System.out.println(out);
+    }
+
+    private static double micros(long nanos) {
+        return round(nanos / 1000.0);
+    }
+
+    private static double round(double value) {
+        return Double.parseDouble(String.format(Locale.ROOT, "%.1f", value));
+    }
+
+    /**
+     * 4 byte length field + payloadLength byte의 frame을 만든다.
+     */
+    private static byte[] frame(int payloadLength) {
+        byte[] frame = new byte[4 + payloadLength];
+        frame[0] = (byte) (payloadLength >>> 24);
+        frame[1] = (byte) (payloadLength >>> 16);
+        frame[2] = (byte) (payloadLength >>> 8);
+        frame[3] = (byte) payloadLength;
+        return frame;
+    }
+
+    private static void send(Channel channel, byte[] data) {
+        Buffer buffer = new Buffer(BufferAllocators.pooled(), data.length);
+        buffer.write(data);
+        channel.write(buffer); // handler 호출이 끝나면 자동으로 flush된다.
+        buffer.release();
+    }
+
+    /**
+     * client connection 하나. 항상 pipeline개의 요청을 보낸 상태를 유지한다.
+     * 응답은 요청 순서대로 오므로 보낸 시간을 ring buffer에 기록해 두었다가 응답이 완성될 때 latency를 계산한다.
+     * loop thread에서만 호출된다.
+     */
+    private class Connection implements Handler {
+        private final long[] sendTimes = new long[pipeline];
+        private int head = 0;
+        private int inFlight = 0;
+        private int received = 0; // 현재 응답에서 받은 byte 수.
+
+        void fill(Channel channel) {
+            while (running && (inFlight < pipeline)) {
+                sendTimes[(head + inFlight) % pipeline] = System.nanoTime();
+                inFlight++;
+                send(channel, request);
+            }
+            channel.flush();
+        }
+
+        @Override
+        public void onInbound(Channel channel, Buffer buffer) {
+            int remaining;
+            while ((remaining = buffer.size()) > 0) {
+                int consumed = Math.min(remaining, responseLength - received);
+                buffer.skip(consumed);
+                received += consumed;
+                if (received == responseLength) {
+                    received = 0;
+                    complete();
+                }
+            }
+            fill(channel);
+        }
+
+        private void complete() {
+            long latency = System.nanoTime() - sendTimes[head];
+            head = (head + 1) % pipeline;
+            inFlight--;
+            if (recording)
+                histogram.get().record(latency);
+        }
+
+        @Override
+        public void onError(Channel channel, Throwable e) {
+            if (running && (errors.getAndIncrement() == 0))
+                e.printStackTrace();
+        }
+    }
+}
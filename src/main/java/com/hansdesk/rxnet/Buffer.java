@@ -2,19 +2,35 @@ package com.hansdesk.rxnet;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Arrays;
 
 public class Buffer {
-    private List<byte[]> bytes = new ArrayList<>();
+    // 추가로 할당되는 chunk의 최대 크기. 크기가 계속 두 배씩 커지는 것을 막는다.
+    private static final int MAX_GROWTH_CAPACITY = 1 << 20;
+    // gathering write 한 번에 넘길 최대 chunk 수. 대부분의 OS에서 IOV_MAX는 1024이다.
+    private static final int MAX_GATHER_CHUNKS = 1024;
+
+    private final BufferAllocator allocator;
+    private final int initialCapacity;
+
+    // chunk들은 ring으로 관리한다. 다 읽은 chunk를 앞에서 제거하거나 뒤에 새 chunk를 붙이는 작업이 모두 O(1)이다.
+    // rIndex, wIndex, mIndex는 head로부터의 순서이다.
+    private ByteBuffer[] chunks = new ByteBuffer[4];
+    private ByteBuffer[] views = new ByteBuffer[4]; // chunk마다 socket I/O에 사용할 view를 하나씩 만들어 재사용한다.
+    // chunk마다 데이터가 끝나는 위치. 다른 Buffer에서 넘겨받은 chunk는 capacity보다 앞에서 끝날 수 있다.
+    private int[] ends = new int[4];
+    private int head = 0;
+    private int count = 0;
+    private ByteBuffer[] ioBuffers = new ByteBuffer[2];
     private int rIndex = 0;
     private int rPosition = 0;
     private int wIndex = 0;
     private int wPosition = 0;
     private int mIndex = -1;
     private int mPosition = 0;
+    private int size = 0; // 읽을 수 있는 전체 byte 수.
 
     private InputStream inputStream;
     private OutputStream outputStream;
@@ -30,6 +46,23 @@ public class Buffer {
         public int read() {
             return buffer.read();
         }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0)
+                return 0;
+            return buffer.read(b, off, len);
+        }
+
+        @Override
+        public long skip(long n) {
+            return (n <= 0) ? 0 : buffer.skip((int) Math.min(n, Integer.MAX_VALUE));
+        }
+
+        @Override
+        public int available() {
+            return buffer.size();
+        }
     }
 
     static class _OutputStream extends OutputStream {
@@ -43,10 +76,28 @@ public class Buffer {
         public void write(int b) {
             buffer.write(b);
         }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            buffer.write(b, off, len);
+        }
     }
 
     public Buffer(int initialCapacity) {
-        bytes.add(new byte[initialCapacity]);
+        this(BufferAllocators.unpooled(), initialCapacity);
+    }
+
+    /**
+     * allocator로부터 내부 chunk를 할당받는 Buffer를 생성한다.
+     * 다 사용한 후에는 release()를 호출해서 chunk들을 allocator로 반환해야 한다.
+     *
+     * @param allocator chunk를 할당받을 allocator.
+     * @param initialCapacity 첫 chunk의 크기.
+     */
+    public Buffer(BufferAllocator allocator, int initialCapacity) {
+        this.allocator = allocator;
+        this.initialCapacity = initialCapacity;
+        append(allocator.allocate(initialCapacity));
     }
 
     public InputStream inputStream() {
@@ -71,21 +122,76 @@ public class Buffer {
     }
 
     /**
-     * 이 버퍼에 쓰기 작업을 하기위한 ByteBuffer 객체를 반환한다.
+     * 이 버퍼에서 읽기 작업을 하기위한 ByteBuffer 객체를 반환한다.
+     * 반환되는 ByteBuffer는 chunk마다 재사용되는 view이므로 버퍼에 대한 다음 작업 전까지만 유효하다.
      *
-     * @return 현재 상태에서 write buffer의 남은 공간을 ByteBuffer로 wrap해서 반환한다.
+     * @return 현재 상태에서 read buffer의 읽을 수 있는 영역을 position, limit으로 지정한 ByteBuffer.
      */
     java.nio.ByteBuffer byteBufferForRead() {
-        return ByteBuffer.wrap(bytes.get(rIndex), rPosition, readableBytes());
+        return view(rIndex).limit(rPosition + readableBytes()).position(rPosition);
     }
 
     /**
      * 이 버퍼에 쓰기 작업을 하기위한 ByteBuffer 객체를 반환한다.
+     * 반환되는 ByteBuffer는 chunk마다 재사용되는 view이므로 버퍼에 대한 다음 작업 전까지만 유효하다.
      *
-     * @return 현재 상태에서 write buffer의 남은 공간을 ByteBuffer로 wrap해서 반환한다.
+     * @return 현재 상태에서 write buffer의 남은 공간을 position, limit으로 지정한 ByteBuffer.
      */
     java.nio.ByteBuffer byteBufferForWrite() {
-        return ByteBuffer.wrap(bytes.get(wIndex), wPosition, writableBytes());
+        ByteBuffer view = view(wIndex);
+        return view.limit(view.capacity()).position(wPosition);
+    }
+
+    /**
+     * gathering write를 위해 읽을 수 있는 모든 chunk의 view를 byteBuffers() 배열에 채운다.
+     * 각 view는 chunk의 읽을 수 있는 영역을 position, limit으로 지정하고 있다.
+     *
+     * @return byteBuffers() 배열에 채워진 view의 수. 최대 MAX_GATHER_CHUNKS개까지만 채운다.
+     */
+    int byteBuffersForRead() {
+        int count = Math.min(wIndex - rIndex + 1, MAX_GATHER_CHUNKS);
+        ensureIoBuffers(count);
+
+        ioBuffers[0] = byteBufferForRead();
+        for (int inx = 1; inx < count; inx++) {
+            ByteBuffer view = view(rIndex + inx);
+            ioBuffers[inx] = view.limit((rIndex + inx == wIndex) ? wPosition : end(rIndex + inx)).position(0);
+        }
+        return count;
+    }
+
+    /**
+     * scattering read를 위해 현재 write buffer와 그 다음 chunk의 view를 byteBuffers() 배열에 채운다.
+     * 현재 write buffer의 남은 공간이 expected 이상이면 write buffer만 채운다.
+     * 모자라면 다음 chunk도 채우는데, 다음 chunk가 없으면 expected 크기로 새로 할당해서 붙여 놓는다.
+     *
+     * @param expected 이번 read에서 읽을 것으로 예상되는 byte 수.
+     * @return byteBuffers() 배열에 채워진 view의 수.
+     */
+    int byteBuffersForWrite(int expected) {
+        if (writableBytes() >= expected) {
+            ioBuffers[0] = byteBufferForWrite();
+            return 1;
+        }
+
+        if (wIndex + 1 >= count)
+            append(allocator.allocate(expected));
+        ensureIoBuffers(2);
+
+        ioBuffers[0] = byteBufferForWrite();
+        ByteBuffer next = view(wIndex + 1);
+        ioBuffers[1] = next.limit(next.capacity()).position(0);
+        return 2;
+    }
+
+    /**
+     * byteBuffersForRead(), byteBuffersForWrite()가 view를 채워 놓는 배열을 반환한다.
+     * 배열은 재사용되므로 버퍼에 대한 다음 작업 전까지만 유효하다.
+     *
+     * @return view 배열.
+     */
+    java.nio.ByteBuffer[] byteBuffers() {
+        return ioBuffers;
     }
 
     /**
@@ -111,13 +217,27 @@ public class Buffer {
      * reset()을 호출한 후에는 unmark()를 호출할 필요는 없다.
      */
     public void reset() {
-        if (mIndex > 0) {
+        if (mIndex >= 0) {
+            size += readSinceMark(); // mark 이후에 write된 데이터는 그대로 두고 읽은 만큼만 되돌린다.
             rIndex = mIndex;
             rPosition = mPosition;
             unmark();
         }
     }
 
+    /**
+     * mark된 위치부터 현재 read position까지의 byte 수. mark 상태에서는 compact가 되지 않으므로 그 사이의 chunk들은 남아있다.
+     */
+    private int readSinceMark() {
+        if (mIndex == rIndex)
+            return rPosition - mPosition;
+
+        int bytes = end(mIndex) - mPosition;
+        for (int index = mIndex + 1; index < rIndex; index++)
+            bytes += end(index);
+        return bytes + rPosition;
+    }
+
     /**
      * 현재 mark가 된 상태인지 조회.
      *
@@ -130,42 +250,317 @@ public class Buffer {
     /**
      * 버퍼에서 한 byte를 읽는다.
      *
-     * @return 읽은 바이트를 int형으로 반환.
+     * @return 읽은 바이트를 0 ~ 255 사이의 int형으로 반환. 읽을 데이터가 없으면 -1.
      */
     public int read() {
         if (readable()) {
-            byte data = bytes.get(rIndex)[rPosition];
+            byte data = chunk(rIndex).get(rPosition);
             postRead(1);
-            return data;
+            return data & 0xff;
         }
         return -1;
     }
 
+    /**
+     * 버퍼에서 최대 len byte를 읽어서 dst에 복사한다. chunk 단위로 한 번에 복사한다.
+     *
+     * @param dst 읽은 데이터를 복사할 배열.
+     * @param off dst에서 복사를 시작할 위치.
+     * @param len 읽을 최대 byte 수.
+     * @return 실제로 읽은 byte 수. 읽을 데이터가 없으면 -1.
+     */
+    public int read(byte[] dst, int off, int len) {
+        if ((len > 0) && !readable())
+            return -1;
+
+        int read = 0;
+        while ((read < len) && readable()) {
+            int length = Math.min(len - read, readableBytes());
+            chunk(rIndex).get(rPosition, dst, off + read, length);
+            postRead(length);
+            read += length;
+        }
+        return read;
+    }
+
+    public int read(byte[] dst) {
+        return read(dst, 0, dst.length);
+    }
+
+    /**
+     * 읽을 위치에서 fromOffset만큼 떨어진 곳부터 value와 같은 byte를 찾는다. read position은 바뀌지 않는다.
+     * chunk 단위로 검색하므로 peek()을 반복하는 것보다 빠르다.
+     *
+     * @param value 찾을 값. 하위 8 bit만 비교한다.
+     * @param fromOffset 검색을 시작할 위치. 현재 read position으로부터의 거리.
+     * @return 찾은 byte의 현재 read position으로부터의 거리. 없으면 -1.
+     */
+    public int indexOf(int value, int fromOffset) {
+        byte target = (byte) value;
+        int offset = 0; // 각 chunk에서 읽을 수 있는 첫 byte의 read position으로부터의 거리.
+        for (int index = rIndex; index <= wIndex; index++) {
+            int start = (index == rIndex) ? rPosition : 0;
+            int end = (index == wIndex) ? wPosition : end(index);
+            if (fromOffset < offset + (end - start)) {
+                ByteBuffer chunk = chunk(index);
+                for (int position = start + Math.max(0, fromOffset - offset); position < end; position++) {
+                    if (chunk.get(position) == target)
+                        return offset + (position - start);
+                }
+            }
+            offset += end - start;
+        }
+        return -1;
+    }
+
+    /**
+     * 읽지 않고 count byte를 건너뛴다.
+     *
+     * @param count 건너뛸 byte 수.
+     * @return 실제로 건너뛴 byte 수.
+     */
+    public int skip(int count) {
+        int skipped = Math.min(count, size);
+        if (skipped > 0)
+            postRead(skipped);
+        return skipped;
+    }
+
+    public byte readByte() {
+        ensureReadable(1);
+        return (byte) read();
+    }
+
+    public short readShort() {
+        short value = peekShort(0);
+        postRead(Short.BYTES);
+        return value;
+    }
+
+    public short readShortLE() {
+        return Short.reverseBytes(readShort());
+    }
+
+    public int readInt() {
+        int value = peekInt(0);
+        postRead(Integer.BYTES);
+        return value;
+    }
+
+    public int readIntLE() {
+        return Integer.reverseBytes(readInt());
+    }
+
+    public long readLong() {
+        long value = peekLong(0);
+        postRead(Long.BYTES);
+        return value;
+    }
+
+    public long readLongLE() {
+        return Long.reverseBytes(readLong());
+    }
+
+    /**
+     * 읽을 위치에서 offset만큼 떨어진 byte를 읽는다. read position은 바뀌지 않는다.
+     *
+     * @param offset 현재 read position으로부터의 거리.
+     * @return 0 ~ 255 사이의 값.
+     */
+    public int peek(int offset) {
+        ensureReadable(offset + 1);
+        return (int) peekBigEndian(offset, 1) & 0xff;
+    }
+
+    /**
+     * 읽을 위치에서 offset만큼 떨어진 곳의 big endian short 값을 읽는다. read position은 바뀌지 않는다.
+     * 값이 두 chunk에 걸쳐 있어도 된다.
+     *
+     * @param offset 현재 read position으로부터의 거리.
+     * @return 읽은 값.
+     */
+    public short peekShort(int offset) {
+        ensureReadable(offset + Short.BYTES);
+        return (short) peekBigEndian(offset, Short.BYTES);
+    }
+
+    public short peekShortLE(int offset) {
+        return Short.reverseBytes(peekShort(offset));
+    }
+
+    public int peekInt(int offset) {
+        ensureReadable(offset + Integer.BYTES);
+        return (int) peekBigEndian(offset, Integer.BYTES);
+    }
+
+    public int peekIntLE(int offset) {
+        return Integer.reverseBytes(peekInt(offset));
+    }
+
+    public long peekLong(int offset) {
+        ensureReadable(offset + Long.BYTES);
+        return peekBigEndian(offset, Long.BYTES);
+    }
+
+    public long peekLongLE(int offset) {
+        return Long.reverseBytes(peekLong(offset));
+    }
+
     /**
      * 버퍼에 한 byte를 write한다.
      *
      * @param b 버퍼에 기록할 값. 하위 8 bit만 write된다.
      */
     public void write(int b) {
-        bytes.get(wIndex)[wPosition] = (byte)b;
+        chunk(wIndex).put(wPosition, (byte)b);
         postWrite(1);
     }
 
+    /**
+     * src의 off부터 len byte를 버퍼에 write한다. chunk 단위로 한 번에 복사한다.
+     *
+     * @param src write할 데이터가 있는 배열.
+     * @param off src에서 데이터가 시작되는 위치.
+     * @param len write할 byte 수.
+     */
+    public void write(byte[] src, int off, int len) {
+        int written = 0;
+        while (written < len) {
+            int length = Math.min(len - written, writableBytes());
+            chunk(wIndex).put(wPosition, src, off + written, length);
+            postWrite(length);
+            written += length;
+        }
+    }
+
+    public void write(byte[] src) {
+        write(src, 0, src.length);
+    }
+
+    public void writeShort(int value) {
+        if (writableBytes() >= Short.BYTES) {
+            chunk(wIndex).putShort(wPosition, (short) value);
+            postWrite(Short.BYTES);
+        } else {
+            writeBigEndian(value, Short.BYTES);
+        }
+    }
+
+    public void writeShortLE(int value) {
+        writeShort(Short.reverseBytes((short) value));
+    }
+
+    public void writeInt(int value) {
+        if (writableBytes() >= Integer.BYTES) {
+            chunk(wIndex).putInt(wPosition, value);
+            postWrite(Integer.BYTES);
+        } else {
+            writeBigEndian(value, Integer.BYTES);
+        }
+    }
+
+    public void writeIntLE(int value) {
+        writeInt(Integer.reverseBytes(value));
+    }
+
+    public void writeLong(long value) {
+        if (writableBytes() >= Long.BYTES) {
+            chunk(wIndex).putLong(wPosition, value);
+            postWrite(Long.BYTES);
+        } else {
+            writeBigEndian(value, Long.BYTES);
+        }
+    }
+
+    public void writeLongLE(long value) {
+        writeLong(Long.reverseBytes(value));
+    }
+
     /**
      * parameter로 받은 buffer의 내용을 나의 buffer에 write한다..
      *
      * @param buffer 이 buffer의 내용을 나의 buffer에 write한다.
      */
     public void write(Buffer buffer) {
-        int count = Math.min(buffer.readableBytes(), writableBytes());
+        copyFrom(buffer, buffer.size());
+    }
 
-        while (count > 0) {
-            System.arraycopy(buffer.bytes.get(buffer.rIndex), buffer.rPosition, bytes.get(wIndex), wPosition, count);
-            buffer.postRead(count); // read buffer position 이동.
-            postWrite(count); // write buffer position 이동.
+    /**
+     * parameter로 받은 buffer의 내용을 모두 나의 buffer로 옮긴다.
+     * buffer의 chunk 중에서 처음부터 끝까지 읽을 수 있는 chunk는 복사하지 않고 chunk 자체를 나의 buffer로 넘겨받는다.
+     * 일부만 읽을 수 있는 앞쪽과 뒤쪽 chunk만 복사된다. 두 buffer 중 하나라도 mark 상태이면 write(Buffer)처럼 모두 복사한다.
+     *
+     * @param buffer 내용을 옮겨올 buffer. 호출 후에는 읽을 데이터가 남지 않는다.
+     */
+    public void transferFrom(Buffer buffer) {
+        transferFrom(buffer, buffer.size());
+    }
+
+    /**
+     * parameter로 받은 buffer의 앞쪽 length byte를 나의 buffer로 옮긴다. 옮기는 방식은 transferFrom(Buffer)와 같다.
+     *
+     * @param buffer 내용을 옮겨올 buffer.
+     * @param length 옮길 최대 byte 수.
+     */
+    public void transferFrom(Buffer buffer, int length) {
+        if (buffer == this)
+            throw new IllegalArgumentException("cannot transfer from itself");
+        if (buffer.marked() || marked()) {
+            copyFrom(buffer, length);
+            return;
+        }
+
+        // 앞쪽 chunk가 일부만 읽을 수 있으면 그 부분은 복사한다. 복사가 끝나면 buffer의 read position은 다음 chunk의 처음이 된다.
+        if ((buffer.rIndex < buffer.wIndex) && (buffer.rPosition > 0)) {
+            int copy = Math.min(length, buffer.readableBytes());
+            copyFrom(buffer, copy);
+            length -= copy;
+        }
+
+        if (buffer.movable(length)) {
+            // 현재 write buffer를 봉인하고 넘겨받은 chunk들을 그 뒤에 붙인다.
+            while (count > wIndex + 1) // 미리 할당해 둔 chunk는 반환한다.
+                removeLast();
+            if (wPosition > 0)
+                ends[(head + wIndex) & (chunks.length - 1)] = wPosition;
+            else
+                removeLast(); // 비어있는 write buffer는 남겨둘 필요가 없다.
+
+            while (buffer.movable(length)) { // compact()에 의해 buffer.rIndex는 항상 0이다.
+                int slot = buffer.head;
+                int end = buffer.ends[slot];
+                append(buffer.chunks[slot], buffer.views[slot], end);
+
+                buffer.chunks[slot] = null;
+                buffer.views[slot] = null;
+                buffer.head = (buffer.head + 1) & (buffer.chunks.length - 1);
+                buffer.count--;
+                buffer.wIndex--;
+                buffer.size -= end;
+                size += end;
+                length -= end;
+            }
 
-            count = Math.min(buffer.readableBytes(), writableBytes());
+            // 새로운 write buffer를 붙인다. 넘겨받은 chunk 수와 상관없이 처음 크기로 시작한다.
+            append(allocator.allocate(initialCapacity));
+            wIndex = count - 1;
+            wPosition = 0;
         }
+
+        // 뒤쪽 chunk의 남은 데이터는 복사한다.
+        copyFrom(buffer, length);
+    }
+
+    /**
+     * 현재 read buffer를 복사하지 않고 다른 buffer로 넘겨줄 수 있는 지 여부.
+     * 절반도 채워지지 않은 chunk는 복사하는 편이 낫다. 작은 조각마다 chunk 하나를 차지하면 gathering write의 원소만 늘어난다.
+     *
+     * @param length 넘겨줄 수 있는 최대 byte 수.
+     * @return read buffer가 처음부터 끝까지 읽을 수 있고, 절반 이상 채워져 있고, 그 크기가 length 이하이면 true.
+     */
+    private boolean movable(int length) {
+        return (rIndex < wIndex) && (rPosition == 0) && (end(rIndex) <= length)
+                && (end(rIndex) >= (chunk(rIndex).capacity() >> 1));
     }
 
     /**
@@ -176,7 +571,16 @@ public class Buffer {
     public int readableBytes() {
         return (wIndex == rIndex) ?
                 (wPosition - rPosition) :
-                (bytes.get(rIndex).length - rPosition);
+                (end(rIndex) - rPosition);
+    }
+
+    /**
+     * 버퍼에 남아있는 읽을 수 있는 데이터 전체의 크기이다.
+     *
+     * @return 모든 chunk에서 읽을 수 있는 byte 수.
+     */
+    public int size() {
+        return size;
     }
 
     /**
@@ -185,20 +589,49 @@ public class Buffer {
      * @return 현재 write buffer에서 write가능한 공간의 byte 수.
      */
     public int writableBytes() {
-        return (bytes.get(wIndex).length - wPosition);
+        return (chunk(wIndex).capacity() - wPosition);
     }
 
     /**
      * 버퍼를 완전히 비우고 내부 버퍼의 크기도 초기 상태로 되돌린다.
      */
     public void clear() {
+        if (count == 0) // release된 버퍼.
+            return;
+
         rIndex = rPosition = 0;
         wIndex = wPosition = 0;
-        if (bytes.size() > 1) {
-            byte[] temp = bytes.get(0);
-            bytes.clear();
-            bytes.add(temp);
-        }
+        size = 0;
+        while (count > 1)
+            removeLast();
+        ends[head] = chunks[head].capacity(); // 넘겨받은 chunk였을 수도 있다.
+    }
+
+    /**
+     * 비어 있는 버퍼의 chunk들을 allocator로 반환하고 capacity 크기의 chunk 하나로 다시 시작한다.
+     * 큰 chunk를 계속 잡고 있지 않도록 할 때 사용한다. 읽을 데이터가 있거나 mark 상태이면 아무것도 하지 않는다.
+     *
+     * @param capacity 새 chunk의 크기.
+     */
+    void resize(int capacity) {
+        if (readable() || marked())
+            return;
+
+        release();
+        append(allocator.allocate(capacity));
+    }
+
+    /**
+     * 내부 chunk들을 모두 allocator로 반환한다. release한 후에는 버퍼를 사용해서는 안 된다.
+     */
+    public void release() {
+        rIndex = rPosition = 0;
+        wIndex = wPosition = 0;
+        mIndex = -1;
+        size = 0;
+        while (count > 0)
+            removeLast();
+        head = 0;
     }
 
     /**
@@ -228,11 +661,12 @@ public class Buffer {
      * @param count 전진시킬 byte 수.
      */
     private void postRead(int count) {
+        size -= count;
         while (count > 0) {
-            int move = Math.min((bytes.get(rIndex).length - rPosition), count);
+            int move = Math.min((end(rIndex) - rPosition), count);
             count -= move;
             rPosition += move;
-            if (rPosition >= bytes.get(rIndex).length) {
+            if (rPosition >= end(rIndex)) {
                 rIndex++;
                 rPosition = 0;
             }
@@ -243,41 +677,193 @@ public class Buffer {
 
     /**
      * 현재 write buffer에 count만큼의 데이터가 write되었을 때 position을 count만큼 전진시키는 메소드이다.
+     * scattering read를 한 경우에는 count가 여러 chunk에 걸쳐 있을 수 있다.
      *
-     * @param count 전진시킬 byte 수. remaining()이 반환하는 수 이하의 값만 올 수 있다.
-     * @return 버퍼가 추가로 할당되었으면 true, 아니면 false
+     * @param count 전진시킬 byte 수. 이미 할당된 chunk들의 남은 공간 이하의 값만 올 수 있다.
+     * @return write buffer가 다음 chunk로 바뀌었으면 true, 아니면 false
      */
     private boolean postWrite(int count) {
         boolean bufferChanged = false;
 
+        size += count;
         wPosition += count;
-        if (wPosition >= bytes.get(wIndex).length) {
+        while (wPosition >= chunk(wIndex).capacity()) {
+            wPosition -= chunk(wIndex).capacity();
             wIndex++;
-            if (wIndex >= bytes.size())
-                bytes.add(new byte[bytes.get(0).length * (1 << bytes.size())]);
-            wPosition = 0;
+            if (wIndex >= this.count)
+                append(allocator.allocate(growthCapacity()));
             bufferChanged = true;
         }
 
         return bufferChanged;
     }
 
+    /**
+     * 새로 추가할 chunk의 크기를 계산한다. 마지막 chunk의 두 배이며 MAX_GROWTH_CAPACITY를 넘지 않는다.
+     * chunk 수가 아니라 마지막 chunk를 기준으로 하므로 transferFrom()으로 넘겨받은 chunk가 많아도 크기가 불어나지 않는다.
+     *
+     * @return 추가할 chunk의 크기.
+     */
+    private int growthCapacity() {
+        int last = (count > 0) ? chunk(count - 1).capacity() : initialCapacity;
+        int limit = Math.max(initialCapacity, MAX_GROWTH_CAPACITY);
+        return (last >= (limit >> 1)) ? limit : Math.max(last << 1, initialCapacity);
+    }
+
     /**
      * 버퍼의 내부 공간을 정리하여 메모리를 잡고 있지 않도록 정리한다.
-     * 사용중인 내부 버퍼만 남기고 garbage collection 될 수 있도록 한다.
+     * 사용중인 내부 버퍼만 남기고 다 읽은 chunk는 allocator로 반환한다.
      */
     private void compact() {
-        if (!marked()) {
+        if ((count > 0) && !marked()) { // release된 버퍼는 정리할 chunk가 없다.
             if (!readable()) {
                 clear();
-            } else if (rIndex > 0) {
-                for (int inx = rIndex; inx <= wIndex; inx++)
-                    bytes.set(inx - rIndex, bytes.get(inx));
-                bytes = bytes.stream().limit(wIndex - rIndex + 1).collect(Collectors.toList());
+            } else {
+                while (rIndex > 0) // write buffer 뒤에 미리 할당된 chunk는 유지된다.
+                    removeFirst();
+            }
+        }
+    }
 
-                wIndex -= rIndex;
-                rIndex = 0;
+    /**
+     * buffer에서 최대 length byte를 복사해 온다.
+     *
+     * @param buffer 데이터를 읽을 buffer.
+     * @param length 복사할 최대 byte 수.
+     */
+    private void copyFrom(Buffer buffer, int length) {
+        int copy = Math.min(length, Math.min(buffer.readableBytes(), writableBytes()));
+
+        while (copy > 0) {
+            ByteBuffer src = buffer.byteBufferForRead();
+            src.limit(src.position() + copy);
+            byteBufferForWrite().put(src);
+            buffer.postRead(copy); // read buffer position 이동.
+            postWrite(copy); // write buffer position 이동.
+
+            length -= copy;
+            copy = Math.min(length, Math.min(buffer.readableBytes(), writableBytes()));
+        }
+    }
+
+    private void ensureReadable(int length) {
+        if (size < length)
+            throw new BufferUnderflowException();
+    }
+
+    /**
+     * 현재 read position에서 offset만큼 떨어진 곳부터 length byte를 big endian 값으로 읽는다.
+     * 값이 한 chunk 안에 있으면 chunk에서 바로 읽고, 두 chunk에 걸쳐 있으면 byte 단위로 조합한다.
+     *
+     * @param offset 현재 read position으로부터의 거리.
+     * @param length 읽을 byte 수. 1, 2, 4, 8 중 하나.
+     * @return 읽은 값.
+     */
+    private long peekBigEndian(int offset, int length) {
+        int index = rIndex;
+        int position = rPosition + offset;
+        while (position >= end(index)) {
+            position -= end(index);
+            index++;
+        }
+
+        ByteBuffer chunk = chunk(index);
+        if (position + length <= end(index)) {
+            switch (length) {
+                case Short.BYTES: return chunk.getShort(position);
+                case Integer.BYTES: return chunk.getInt(position);
+                case Long.BYTES: return chunk.getLong(position);
+                default: return chunk.get(position);
+            }
+        }
+
+        long value = 0;
+        for (int inx = 0; inx < length; inx++) {
+            if (position >= end(index)) {
+                chunk = chunk(++index);
+                position = 0;
             }
+            value = (value << 8) | (chunk.get(position++) & 0xff);
         }
+        return value;
+    }
+
+    private void writeBigEndian(long value, int length) {
+        for (int shift = (length - 1) * 8; shift >= 0; shift -= 8)
+            write((int) (value >>> shift));
+    }
+
+    private ByteBuffer chunk(int index) {
+        return chunks[(head + index) & (chunks.length - 1)];
+    }
+
+    private ByteBuffer view(int index) {
+        return views[(head + index) & (chunks.length - 1)];
+    }
+
+    private int end(int index) {
+        return ends[(head + index) & (chunks.length - 1)];
+    }
+
+    /**
+     * ring의 끝에 chunk를 추가한다. ring이 가득 찼으면 두 배로 늘린다.
+     *
+     * @param chunk 추가할 chunk.
+     */
+    private void append(ByteBuffer chunk) {
+        append(chunk, chunk.duplicate(), chunk.capacity());
+    }
+
+    private void append(ByteBuffer chunk, ByteBuffer view, int end) {
+        if (count == chunks.length) {
+            ByteBuffer[] newChunks = new ByteBuffer[chunks.length << 1];
+            ByteBuffer[] newViews = new ByteBuffer[chunks.length << 1];
+            int[] newEnds = new int[chunks.length << 1];
+            for (int inx = 0; inx < count; inx++) {
+                newChunks[inx] = chunk(inx);
+                newViews[inx] = view(inx);
+                newEnds[inx] = end(inx);
+            }
+            chunks = newChunks;
+            views = newViews;
+            ends = newEnds;
+            head = 0;
+        }
+
+        int slot = (head + count) & (chunks.length - 1);
+        chunks[slot] = chunk;
+        views[slot] = view;
+        ends[slot] = end;
+        count++;
+    }
+
+    /**
+     * 다 읽은 첫 번째 chunk를 allocator로 반환한다.
+     */
+    private void removeFirst() {
+        allocator.release(chunks[head]);
+        chunks[head] = null;
+        views[head] = null;
+        head = (head + 1) & (chunks.length - 1);
+        count--;
+
+        rIndex--;
+        wIndex--;
+    }
+
+    /**
+     * 마지막 chunk를 allocator로 반환한다.
+     */
+    private void removeLast() {
+        int slot = (head + count - 1) & (chunks.length - 1);
+        allocator.release(chunks[slot]);
+        chunks[slot] = null;
+        views[slot] = null;
+        count--;
+    }
+
+    private void ensureIoBuffers(int length) {
+        if (ioBuffers.length < length)
+            ioBuffers = Arrays.copyOf(ioBuffers, Math.max(length, ioBuffers.length << 1));
     }
 }
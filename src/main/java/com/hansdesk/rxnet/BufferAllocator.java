@@ -0,0 +1,25 @@
+package com.hansdesk.rxnet;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Buffer가 내부 chunk로 사용할 메모리를 할당하고 회수한다.
+ * Buffer는 chunk가 더 이상 필요 없어지면 (compact(), clear(), release()) 할당받은 allocator로 반환한다.
+ */
+public interface BufferAllocator {
+    /**
+     * capacity 이상의 크기를 가지는 chunk를 할당한다.
+     * 반환되는 chunk의 position은 0, limit은 capacity()이다.
+     *
+     * @param capacity 필요한 최소 크기.
+     * @return 할당된 chunk.
+     */
+    ByteBuffer allocate(int capacity);
+
+    /**
+     * 더 이상 사용하지 않는 chunk를 반환한다. 반환한 후에는 chunk를 사용해서는 안 된다.
+     *
+     * @param chunk allocate()로 할당받은 chunk.
+     */
+    void release(ByteBuffer chunk);
+}
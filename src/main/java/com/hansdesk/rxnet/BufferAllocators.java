@@ -0,0 +1,52 @@
+package com.hansdesk.rxnet;
+
+import java.nio.ByteBuffer;
+
+public class BufferAllocators {
+    private static final BufferAllocator UNPOOLED = new BufferAllocator() {
+        @Override
+        public ByteBuffer allocate(int capacity) {
+            return ByteBuffer.allocate(capacity);
+        }
+
+        @Override
+        public void release(ByteBuffer chunk) {
+            // garbage collection에 맡긴다.
+        }
+    };
+
+    private static class Pooled {
+        static final PooledBufferAllocator allocator = new PooledBufferAllocator(false);
+    }
+
+    private static class PooledDirect {
+        static final PooledBufferAllocator allocator = new PooledBufferAllocator(true);
+    }
+
+    /**
+     * 매번 새로운 heap chunk를 할당하고 반환된 chunk는 garbage collection에 맡기는 allocator.
+     *
+     * @return unpooled allocator.
+     */
+    public static BufferAllocator unpooled() {
+        return UNPOOLED;
+    }
+
+    /**
+     * 모든 서버가 기본으로 공유하는 pooled allocator.
+     *
+     * @return 공유 PooledBufferAllocator.
+     */
+    public static PooledBufferAllocator pooled() {
+        return Pooled.allocator;
+    }
+
+    /**
+     * 모든 서버가 공유하는 off-heap pooled allocator. socket I/O 시에 heap과 off-heap 사이의 복사가 생기지 않는다.
+     *
+     * @return 공유 direct PooledBufferAllocator.
+     */
+    public static PooledBufferAllocator pooledDirect() {
+        return PooledDirect.allocator;
+    }
+}
@@ -1,6 +1,79 @@
 package com.hansdesk.rxnet;
 
+import java.nio.channels.FileChannel;
+
+/**
+ * write(), sendFile(), flush(), stop()은 어느 thread에서나 호출할 수 있다.
+ * channel을 담당하는 selector thread에서 호출하면 바로 처리되고, 다른 thread에서 호출하면 lock 없는 queue를 통해서
+ * selector thread로 넘겨져서 호출한 순서대로 처리된다.
+ */
 public interface Channel {
+    /**
+     * buffer의 내용을 전송 대기열에 추가한다. 바로 전송되지 않고 flush()할 때 대기중인 데이터가 한 번에 전송된다.
+     * handler의 onStart(), onInbound(), onWritabilityChanged()가 반환되면 자동으로 flush()된다.
+     * handler 밖의 다른 thread에서 write()했다면 flush()를 호출해야 전송된다.
+     *
+     * @param buffer 전송할 데이터. 호출 후에는 읽을 데이터가 남지 않는다.
+     */
     void write(Buffer buffer);
+
+    /**
+     * 전송 대기중인 데이터를 socket으로 write한다. 우선 바로 write해 보고 socket buffer가 가득 찼을 때만
+     * socket이 다시 writable이 되기를 기다린다.
+     */
+    void flush();
+
+    /**
+     * 파일의 position부터 count byte를 peer로 전송한다. 파일의 내용은 heap으로 복사되지 않고 FileChannel.transferTo()로 전송된다.
+     * 이전에 write()한 데이터가 모두 전송된 후에 전송되며, 이후에 write()한 데이터는 파일이 모두 전송된 후에 전송된다.
+     * write()와 마찬가지로 flush()할 때 전송이 시작된다.
+     * 전송이 끝날 때까지 file을 닫아서는 안 된다.
+     *
+     * @param file 전송할 파일.
+     * @param position 전송을 시작할 파일 내의 위치.
+     * @param count 전송할 byte 수.
+     * @return 전송 진행 상황과 완료 여부를 조회할 수 있는 FileRegion.
+     */
+    FileRegion sendFile(FileChannel file, long position, long count);
+
     void stop();
+
+    /**
+     * delayMillis 후에 task를 이 channel을 담당하는 selector thread에서 실행하도록 예약한다.
+     * task에서는 lock 없이 channel을 사용할 수 있다.
+     *
+     * @param delayMillis 실행할 때까지의 시간. (ms)
+     * @param task 실행할 작업.
+     * @return 예약을 취소할 수 있는 Timeout.
+     */
+    Timeout schedule(long delayMillis, Runnable task);
+
+    /**
+     * channel이 아직 닫히지 않았는지 확인한다.
+     *
+     * @return stop()되지 않았고 socket이 열려 있으면 true.
+     */
+    boolean isOpen();
+
+    /**
+     * 전송 대기중인 데이터가 high water mark를 넘지 않았으면 true를 반환한다.
+     * false이면 데이터 생성을 멈추고 Handler.onWritabilityChanged()로 다시 writable이 되었다는 통지를 기다려야 한다.
+     *
+     * @return writable 여부.
+     */
+    boolean isWritable();
+
+    /**
+     * 아직 socket으로 전송되지 못한 byte 수를 반환한다. sendFile()로 요청한 파일의 남은 크기도 포함된다.
+     *
+     * @return 전송 대기중인 byte 수.
+     */
+    long pendingOutboundBytes();
+
+    /**
+     * channel의 이벤트를 처리하는 handler를 반환한다. HandlerChain이면 연결중에 handler를 추가하거나 교체할 수 있다.
+     *
+     * @return channel의 handler.
+     */
+    Handler handler();
 }
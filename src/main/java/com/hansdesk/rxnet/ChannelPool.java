@@ -0,0 +1,299 @@
+package com.hansdesk.rxnet;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * 주소별로 연결된 channel을 재사용한다. 요청마다 연결하지 않고 이미 연결된 channel을 빌려주므로 handshake 지연이 없다.
+ * 주소마다 maxPerHost개까지 연결하며, 모두 사용중이면 반환될 때까지 기다린다.
+ * 반환된 channel은 maxIdleTime 동안 사용되지 않으면 닫힌다. 빌려줄 때 health check를 통과하지 못한 channel은 닫고 다른 channel을 사용한다.
+ * 모든 메소드는 어느 thread에서나 호출할 수 있다.
+ */
+public class ChannelPool {
+    /**
+     * 주소 하나에 대한 channel들. 이 객체로 동기화한다.
+     */
+    private static class HostPool {
+        final InetSocketAddress address;
+        final ArrayDeque<IdleChannel> idle = new ArrayDeque<>(); // 마지막에 반환된 channel이 앞에 있다.
+        final ArrayDeque<CompletableFuture<Channel>> waiters = new ArrayDeque<>();
+        int total = 0; // 연결중인 것을 포함해서 이 주소로 생성한 channel 수.
+
+        HostPool(InetSocketAddress address) {
+            this.address = address;
+        }
+    }
+
+    private static class IdleChannel {
+        final Channel channel;
+        final long since;
+
+        IdleChannel(Channel channel, long since) {
+            this.channel = channel;
+            this.since = since;
+        }
+    }
+
+    private final TcpClient client;
+    private final Map<InetSocketAddress, HostPool> pools = new ConcurrentHashMap<>();
+    private final Map<Channel, HostPool> leased = new ConcurrentHashMap<>();
+
+    private volatile int maxPerHost = 8;
+    private volatile long maxIdleMillis = 60_000;
+    private volatile Predicate<Channel> healthCheck = channel -> true;
+    private volatile boolean closed = false;
+
+    ChannelPool(TcpClient client) {
+        this.client = client;
+    }
+
+    /**
+     * 주소마다 생성할 수 있는 최대 channel 수를 지정한다. 기본값은 8이다.
+     *
+     * @param maxPerHost 주소마다 최대 channel 수.
+     * @return this
+     */
+    public ChannelPool maxPerHost(int maxPerHost) {
+        if (maxPerHost <= 0)
+            throw new IllegalArgumentException("maxPerHost must be positive: " + maxPerHost);
+        this.maxPerHost = maxPerHost;
+        return this;
+    }
+
+    /**
+     * 반환된 channel이 사용되지 않고 유지될 수 있는 시간을 지정한다. 기본값은 60초이다.
+     * 시간이 지난 channel은 acquire(), release(), evictIdle()이 호출될 때 닫힌다.
+     *
+     * @param millis 최대 idle 시간. (ms)
+     * @return this
+     */
+    public ChannelPool maxIdleTime(long millis) {
+        this.maxIdleMillis = millis;
+        return this;
+    }
+
+    /**
+     * 빌려주기 전에 idle channel을 검사할 방법을 지정한다. 닫힌 channel은 검사하지 않아도 항상 제외된다.
+     *
+     * @param healthCheck channel을 사용할 수 있으면 true를 반환한다.
+     * @return this
+     */
+    public ChannelPool healthCheck(Predicate<Channel> healthCheck) {
+        this.healthCheck = healthCheck;
+        return this;
+    }
+
+    public CompletableFuture<Channel> acquire(String hostname, int port) {
+        return acquire(new InetSocketAddress(hostname, port));
+    }
+
+    /**
+     * address로 연결된 channel을 빌린다. idle channel이 있으면 가장 최근에 반환된 것을 빌려주고,
+     * 없으면 새로 연결하며, maxPerHost에 도달했으면 다른 channel이 반환될 때까지 기다린다.
+     * 사용이 끝나면 반드시 release()로 반환해야 한다.
+     *
+     * @param address 연결할 주소.
+     * @return 빌린 channel로 완료되는 future.
+     */
+    public CompletableFuture<Channel> acquire(InetSocketAddress address) {
+        if (closed)
+            throw new IllegalStateException("pool is closed");
+
+        HostPool pool = pools.computeIfAbsent(address, HostPool::new);
+        CompletableFuture<Channel> future = new CompletableFuture<>();
+        List<Channel> evicted = new ArrayList<>();
+        Channel channel = null;
+        boolean connect = false;
+
+        synchronized (pool) {
+            long now = System.currentTimeMillis();
+            IdleChannel idle;
+            while ((channel == null) && ((idle = pool.idle.pollFirst()) != null)) {
+                if (usable(idle, now)) {
+                    channel = idle.channel;
+                } else {
+                    pool.total--;
+                    evicted.add(idle.channel);
+                }
+            }
+
+            if (channel != null) {
+                leased.put(channel, pool);
+            } else if (pool.total < maxPerHost) {
+                pool.total++;
+                connect = true;
+            } else {
+                pool.waiters.addLast(future);
+            }
+        }
+
+        stopAll(evicted);
+        if (channel != null)
+            future.complete(channel);
+        else if (connect)
+            connect(pool, future);
+        return future;
+    }
+
+    /**
+     * 빌린 channel을 반환한다. 기다리는 요청이 있으면 바로 그 요청에 넘겨준다.
+     * 닫힌 channel을 반환하면 그 자리에 새로운 channel을 연결할 수 있게 된다.
+     *
+     * @param channel acquire()로 빌린 channel.
+     */
+    public void release(Channel channel) {
+        HostPool pool = leased.remove(channel);
+        if (pool == null)
+            throw new IllegalArgumentException("channel is not leased from this pool");
+
+        CompletableFuture<Channel> waiter = null;
+        boolean connect = false;
+        boolean stop = false;
+        synchronized (pool) {
+            if (!closed && channel.isOpen()) {
+                waiter = pollWaiter(pool);
+                if (waiter != null)
+                    leased.put(channel, pool);
+                else
+                    pool.idle.addFirst(new IdleChannel(channel, System.currentTimeMillis()));
+            } else {
+                pool.total--;
+                stop = true;
+                // 빈 자리에 기다리는 요청을 위해서 새로 연결한다.
+                waiter = closed ? null : pollWaiter(pool);
+                if (waiter != null) {
+                    pool.total++;
+                    connect = true;
+                }
+            }
+        }
+
+        if (stop)
+            channel.stop();
+        if (connect)
+            connect(pool, waiter);
+        else if ((waiter != null) && !waiter.complete(channel)) // 그 사이에 취소된 요청이면 다음 요청에 넘기거나 pool에 넣어둔다.
+            release(channel);
+
+        evictIdle(pool);
+    }
+
+    /**
+     * 취소되었거나 timeout된 요청은 버리고 기다리는 요청 중 가장 오래된 것을 꺼낸다. pool로 동기화된 상태에서 호출해야 한다.
+     *
+     * @return 기다리는 요청. 없으면 null.
+     */
+    private static CompletableFuture<Channel> pollWaiter(HostPool pool) {
+        CompletableFuture<Channel> waiter = pool.waiters.pollFirst();
+        while ((waiter != null) && waiter.isDone())
+            waiter = pool.waiters.pollFirst();
+        return waiter;
+    }
+
+    /**
+     * maxIdleTime이 지난 idle channel들을 닫는다.
+     */
+    public void evictIdle() {
+        for (HostPool pool : pools.values())
+            evictIdle(pool);
+    }
+
+    /**
+     * 모든 idle channel을 닫고 기다리는 요청을 실패로 완료시킨다. 빌려준 channel은 반환될 때 닫힌다.
+     */
+    public void close() {
+        closed = true;
+        for (HostPool pool : pools.values()) {
+            List<Channel> evicted = new ArrayList<>();
+            List<CompletableFuture<Channel>> waiters;
+            synchronized (pool) {
+                for (IdleChannel idle : pool.idle)
+                    evicted.add(idle.channel);
+                pool.total -= pool.idle.size();
+                pool.idle.clear();
+                waiters = new ArrayList<>(pool.waiters);
+                pool.waiters.clear();
+            }
+
+            stopAll(evicted);
+            for (CompletableFuture<Channel> waiter : waiters)
+                waiter.completeExceptionally(new IllegalStateException("pool is closed"));
+        }
+    }
+
+    /**
+     * address로 생성된 channel 수를 반환한다. 빌려준 것, idle 상태인 것, 연결중인 것을 모두 포함한다.
+     *
+     * @param address 주소.
+     * @return channel 수.
+     */
+    public int size(InetSocketAddress address) {
+        HostPool pool = pools.get(address);
+        if (pool == null)
+            return 0;
+        synchronized (pool) {
+            return pool.total;
+        }
+    }
+
+    public int idleCount(InetSocketAddress address) {
+        HostPool pool = pools.get(address);
+        if (pool == null)
+            return 0;
+        synchronized (pool) {
+            return pool.idle.size();
+        }
+    }
+
+    private void connect(HostPool pool, CompletableFuture<Channel> future) {
+        client.connect(pool.address).whenComplete((channel, e) -> {
+            if (e == null) {
+                leased.put(channel, pool);
+                if (!future.complete(channel)) // 요청이 취소되었으면 pool에 넣어둔다.
+                    release(channel);
+                return;
+            }
+
+            CompletableFuture<Channel> waiter;
+            synchronized (pool) {
+                pool.total--;
+                waiter = pollWaiter(pool); // 실패한 자리에 기다리는 요청이 있으면 다시 시도한다.
+                if (waiter != null)
+                    pool.total++;
+            }
+            future.completeExceptionally(e);
+            if (waiter != null)
+                connect(pool, waiter);
+        });
+    }
+
+    private void evictIdle(HostPool pool) {
+        List<Channel> evicted = new ArrayList<>();
+        synchronized (pool) {
+            long now = System.currentTimeMillis();
+            // 오래된 channel은 뒤쪽에 있다.
+            IdleChannel idle;
+            while (((idle = pool.idle.peekLast()) != null) && (now - idle.since >= maxIdleMillis)) {
+                pool.idle.pollLast();
+                pool.total--;
+                evicted.add(idle.channel);
+            }
+        }
+        stopAll(evicted);
+    }
+
+    private boolean usable(IdleChannel idle, long now) {
+        return (now - idle.since < maxIdleMillis) && idle.channel.isOpen() && healthCheck.test(idle.channel);
+    }
+
+    private static void stopAll(List<Channel> channels) {
+        for (Channel channel : channels)
+            channel.stop();
+    }
+}
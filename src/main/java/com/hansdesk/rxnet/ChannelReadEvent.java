@@ -0,0 +1,34 @@
+package com.hansdesk.rxnet;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * OP_READ signal 한 번에 socket에서 읽어들인 과정의 JFR event. handler 호출 시간은 포함하지 않는다.
+ */
+@Name("com.hansdesk.rxnet.ChannelRead")
+@Label("Channel Read")
+@Category({"RxNet", "Channel"})
+@Description("Reading from a socket on OP_READ, excluding the handler callback")
+@StackTrace(false)
+@Threshold("1 ms")
+final class ChannelReadEvent extends Event {
+    @Label("Channel Id")
+    long channelId;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Read Calls")
+    int readCalls;
+
+    @Label("End Of Stream")
+    boolean eof;
+}
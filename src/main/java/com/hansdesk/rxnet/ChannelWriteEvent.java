@@ -0,0 +1,37 @@
+package com.hansdesk.rxnet;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * 전송 대기중인 데이터를 socket으로 write한 과정의 JFR event. drained가 false이면 socket buffer가 가득 차서
+ * OP_WRITE를 기다리게 된 partial write이다.
+ */
+@Name("com.hansdesk.rxnet.ChannelWrite")
+@Label("Channel Write")
+@Category({"RxNet", "Channel"})
+@Description("Writing queued outbound data to a socket")
+@StackTrace(false)
+@Threshold("1 ms")
+final class ChannelWriteEvent extends Event {
+    @Label("Channel Id")
+    long channelId;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Drained")
+    @Description("False if the socket buffer filled up before all pending data was written")
+    boolean drained;
+
+    @Label("Pending Bytes")
+    @DataAmount
+    long pendingBytes;
+}
@@ -7,4 +7,8 @@ public class Channels {
     public static TcpChannel tcpChannelFrom(SocketChannel socketChannel) throws IOException {
         return new TcpChannel(socketChannel);
     }
+
+    public static TcpChannel tcpChannelFrom(SocketChannel socketChannel, BufferAllocator allocator) throws IOException {
+        return new TcpChannel(socketChannel, allocator);
+    }
 }
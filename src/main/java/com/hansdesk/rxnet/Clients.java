@@ -0,0 +1,7 @@
+package com.hansdesk.rxnet;
+
+public class Clients {
+    public static TcpClient newTcpClient() {
+        return new TcpClient();
+    }
+}
@@ -0,0 +1,102 @@
+package com.hansdesk.rxnet;
+
+import com.hansdesk.rxnet.util.JustFuture;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Channel.sendFile()로 전송을 요청한 파일의 영역.
+ * outbound queue에서 앞서 write된 Buffer들 다음 순서로 FileChannel.transferTo()를 통해서 전송된다.
+ * 전송 진행과 완료 처리는 channel을 담당하는 SignalSource thread에서 이루어진다.
+ */
+public class FileRegion {
+    private final FileChannel file;
+    private final long position;
+    private final long count;
+    private final JustFuture future = new JustFuture();
+
+    private volatile long transferred = 0;
+    private volatile Throwable cause;
+
+    FileRegion(FileChannel file, long position, long count) {
+        this.file = file;
+        this.position = position;
+        this.count = count;
+    }
+
+    public FileChannel file() {
+        return file;
+    }
+
+    public long position() {
+        return position;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /**
+     * 지금까지 전송된 byte 수를 반환한다.
+     *
+     * @return 전송된 byte 수.
+     */
+    public long transferred() {
+        return transferred;
+    }
+
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    /**
+     * @return 모두 전송되었으면 true, 아직 전송중이거나 실패했으면 false.
+     */
+    public boolean isSuccess() {
+        return isDone() && (cause == null);
+    }
+
+    /**
+     * @return 전송이 실패한 원인. 실패하지 않았으면 null.
+     */
+    public Throwable cause() {
+        return cause;
+    }
+
+    public void await() {
+        future.await();
+    }
+
+    public boolean await(long millis) {
+        return future.await(millis);
+    }
+
+    /**
+     * 남은 영역을 target으로 전송한다. target의 send buffer가 가득 차면 일부만 전송될 수 있다.
+     *
+     * @param target 전송 대상 channel.
+     * @param maxBytes 이번 호출에서 전송할 최대 byte 수.
+     * @return 모두 전송되었으면 true, 남은 영역이 있으면 false.
+     */
+    boolean transferTo(WritableByteChannel target, long maxBytes) throws IOException {
+        long limit = (maxBytes >= count - transferred) ? count : transferred + maxBytes;
+        while (transferred < limit) {
+            long sent = file.transferTo(position + transferred, limit - transferred, target);
+            if (sent > 0) {
+                transferred += sent;
+            } else if (position + transferred >= file.size()) { // 요청한 영역보다 파일이 짧다.
+                throw new IOException("file is shorter than the requested region: " + file.size() + " < " + (position + count));
+            } else {
+                return false; // send buffer가 가득 찼다. 다음 OP_WRITE에서 계속한다.
+            }
+        }
+        return transferred >= count;
+    }
+
+    void done(Throwable cause) {
+        this.cause = cause;
+        future.done();
+    }
+}
@@ -14,6 +14,24 @@ public interface Handler {
 
     default void onOutbound(Channel channel, Buffer buffer) {}
 
+    /**
+     * channel의 writability가 바뀌면 호출된다. 전송 대기중인 데이터가 high water mark를 넘으면 false,
+     * 전송이 진행되어서 low water mark 아래로 내려가면 true로 호출된다.
+     *
+     * @param channel current channel.
+     * @param writable 바뀐 writability. Channel.isWritable()과 같다.
+     */
+    default void onWritabilityChanged(Channel channel, boolean writable) {}
+
+    /**
+     * idle timeout이 지정된 channel에서 지정된 시간 동안 read나 write가 없으면 호출된다.
+     * 이후에도 계속 idle 상태이면 같은 시간 간격으로 다시 호출된다. 여기서 write()한 데이터는 자동으로 flush()된다.
+     *
+     * @param channel current channel.
+     * @param state idle 종류.
+     */
+    default void onIdle(Channel channel, IdleState state) {}
+
     default void onStop(Channel channel) {}
 
     default void onError(Channel channel, Throwable e) {}
@@ -1,12 +1,37 @@
 package com.hansdesk.rxnet;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.List;
 
-public class HandlerChain implements Iterable<Handler> {
-    private final List<Handler> handlers = new ArrayList<>();
+/**
+ * 여러 handler를 순서대로 연결한 handler. channel의 handler로 지정하면 이벤트가 handler에서 handler로 전달된다.
+ * onStart(), onInbound(), onWritabilityChanged(), onIdle(), onStop(), onError()는 앞의 handler부터, onOutbound()는 뒤의 handler부터 호출된다.
+ *
+ * Forwarding handler는 받은 데이터를 가공해서 직접 다음 handler로 넘겨주는 handler이다. (FrameDecoder 등)
+ * chain은 Forwarding handler에게 그 뒤의 handler들을 next로 연결해주고, 그 뒤의 handler들은 직접 호출하지 않는다.
+ *
+ * 이벤트는 미리 만들어둔 배열을 통해서 전달되므로 이벤트마다 객체를 생성하지 않는다.
+ * append(), insert(), remove()는 새 배열을 만들어서 교체하므로(copy-on-write) 연결중인 channel에서도 안전하게 호출할 수 있다.
+ * 변경된 chain은 다음 이벤트부터 적용된다. 예를 들어 protocol upgrade를 처리하는 handler가 onInbound() 안에서 자신을 교체할 수 있다.
+ * Forwarding handler는 chain마다 next를 가지므로 chain은 channel마다 따로 생성해야 한다. TcpServer.channelHandlerFactory()를 사용한다.
+ */
+public class HandlerChain implements Handler, Iterable<Handler> {
+    /**
+     * 받은 데이터를 가공해서 직접 다음 handler로 넘겨주는 handler.
+     */
+    public interface Forwarding extends Handler {
+        /**
+         * 이벤트를 넘겨줄 다음 handler를 지정한다. chain이 변경될 때마다 chain에 의해서 호출된다.
+         *
+         * @param next 다음 handler. chain에서 뒤에 있는 handler들 전체가 하나의 handler로 전달된다.
+         */
+        void next(Handler next);
+    }
+
+    private static final Handler[] EMPTY = new Handler[0];
+
+    private volatile Handler[] handlers = EMPTY;
+    private volatile Handler head = new Segment(EMPTY);
 
     public static HandlerChain of(Handler... handlers) {
         HandlerChain handlerChain = new HandlerChain();
@@ -14,27 +39,187 @@ public class HandlerChain implements Iterable<Handler> {
         return handlerChain;
     }
 
-    public void append(Handler handler) {
-        handlers.add(handler);
+    public synchronized void append(Handler handler) {
+        insert(handlers.length, handler);
     }
 
-    public void appendAll(Handler[] handlers) {
-        Collections.addAll(this.handlers, handlers);
+    public synchronized void appendAll(Handler[] handlers) {
+        Handler[] updated = Arrays.copyOf(this.handlers, this.handlers.length + handlers.length);
+        System.arraycopy(handlers, 0, updated, this.handlers.length, handlers.length);
+        update(updated);
     }
 
-    public void insert(int at, Handler handler) {
-        handlers.add(at, handler);
+    public synchronized void insert(int at, Handler handler) {
+        if ((at < 0) || (at > handlers.length))
+            throw new IndexOutOfBoundsException("index: " + at + ", size: " + handlers.length);
+
+        Handler[] updated = new Handler[handlers.length + 1];
+        System.arraycopy(handlers, 0, updated, 0, at);
+        updated[at] = handler;
+        System.arraycopy(handlers, at, updated, at + 1, handlers.length - at);
+        update(updated);
     }
 
-    public void remove(int at) {
-        handlers.remove(at);
+    public synchronized void remove(int at) {
+        if ((at < 0) || (at >= handlers.length))
+            throw new IndexOutOfBoundsException("index: " + at + ", size: " + handlers.length);
+
+        Handler[] updated = new Handler[handlers.length - 1];
+        System.arraycopy(handlers, 0, updated, 0, at);
+        System.arraycopy(handlers, at + 1, updated, at, handlers.length - at - 1);
+        update(updated);
+    }
+
+    /**
+     * handler를 찾아서 chain에서 제거한다.
+     *
+     * @param handler 제거할 handler.
+     * @return 제거했으면 true, chain에 없으면 false.
+     */
+    public synchronized boolean remove(Handler handler) {
+        int at = indexOf(handler);
+        if (at < 0)
+            return false;
+
+        remove(at);
+        return true;
+    }
+
+    /**
+     * at 위치의 handler를 다른 handler로 교체한다.
+     *
+     * @param at 교체할 위치.
+     * @param handler 새 handler.
+     */
+    public synchronized void replace(int at, Handler handler) {
+        Handler[] updated = handlers.clone();
+        updated[at] = handler;
+        update(updated);
     }
 
     public Handler get(int at) {
-        return handlers.get(at);
+        return handlers[at];
+    }
+
+    public int indexOf(Handler handler) {
+        Handler[] snapshot = handlers;
+        for (int inx = 0; inx < snapshot.length; inx++) {
+            if (snapshot[inx] == handler)
+                return inx;
+        }
+        return -1;
+    }
+
+    public int size() {
+        return handlers.length;
     }
 
     public Iterator<Handler> iterator() {
-        return handlers.iterator();
+        return Arrays.asList(handlers).iterator(); // snapshot에 대한 iterator이므로 remove()는 지원하지 않는다.
+    }
+
+    @Override
+    public void onStart(Channel channel) {
+        head.onStart(channel);
+    }
+
+    @Override
+    public void onInbound(Channel channel, Buffer buffer) {
+        head.onInbound(channel, buffer);
+    }
+
+    @Override
+    public void onOutbound(Channel channel, Buffer buffer) {
+        head.onOutbound(channel, buffer);
+    }
+
+    @Override
+    public void onWritabilityChanged(Channel channel, boolean writable) {
+        head.onWritabilityChanged(channel, writable);
+    }
+
+    @Override
+    public void onIdle(Channel channel, IdleState state) {
+        head.onIdle(channel, state);
+    }
+
+    @Override
+    public void onStop(Channel channel) {
+        head.onStop(channel);
+    }
+
+    @Override
+    public void onError(Channel channel, Throwable e) {
+        head.onError(channel, e);
+    }
+
+    /**
+     * 새 배열로 chain을 교체한다. Forwarding handler를 기준으로 배열을 segment로 나누고 뒤의 segment부터 연결한다.
+     */
+    private void update(Handler[] updated) {
+        int end = updated.length;
+        for (int inx = updated.length - 1; inx >= 0; inx--) {
+            if (updated[inx] instanceof Forwarding) {
+                Handler segment = new Segment(Arrays.copyOfRange(updated, inx + 1, end));
+                ((Forwarding) updated[inx]).next(segment);
+                end = inx + 1;
+            }
+        }
+
+        head = new Segment(Arrays.copyOfRange(updated, 0, end));
+        handlers = updated;
+    }
+
+    /**
+     * chain의 일부를 하나의 handler로 묶는다. 마지막 handler가 Forwarding handler이면 그 handler가 뒤의 segment로 이벤트를 넘겨준다.
+     */
+    private static class Segment implements Handler {
+        private final Handler[] handlers;
+
+        Segment(Handler[] handlers) {
+            this.handlers = handlers;
+        }
+
+        @Override
+        public void onStart(Channel channel) {
+            for (Handler handler : handlers)
+                handler.onStart(channel);
+        }
+
+        @Override
+        public void onInbound(Channel channel, Buffer buffer) {
+            for (Handler handler : handlers)
+                handler.onInbound(channel, buffer);
+        }
+
+        @Override
+        public void onOutbound(Channel channel, Buffer buffer) {
+            for (int inx = handlers.length - 1; inx >= 0; inx--)
+                handlers[inx].onOutbound(channel, buffer);
+        }
+
+        @Override
+        public void onWritabilityChanged(Channel channel, boolean writable) {
+            for (Handler handler : handlers)
+                handler.onWritabilityChanged(channel, writable);
+        }
+
+        @Override
+        public void onIdle(Channel channel, IdleState state) {
+            for (Handler handler : handlers)
+                handler.onIdle(channel, state);
+        }
+
+        @Override
+        public void onStop(Channel channel) {
+            for (Handler handler : handlers)
+                handler.onStop(channel);
+        }
+
+        @Override
+        public void onError(Channel channel, Throwable e) {
+            for (Handler handler : handlers)
+                handler.onError(channel, e);
+        }
     }
 }
@@ -0,0 +1,32 @@
+package com.hansdesk.rxnet;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * selector thread에서 handler를 호출한 JFR event. handler가 loop을 오래 점유하는지 확인할 수 있다.
+ */
+@Name("com.hansdesk.rxnet.Handler")
+@Label("Handler Callback")
+@Category({"RxNet", "Channel"})
+@Description("Handler callback invoked on the selector thread")
+@StackTrace(false)
+@Threshold("1 ms")
+final class HandlerEvent extends Event {
+    @Label("Channel Id")
+    long channelId;
+
+    @Label("Callback")
+    String callback;
+
+    @Label("Bytes")
+    @Description("Readable bytes passed to the callback")
+    @DataAmount
+    long bytes;
+}
@@ -0,0 +1,181 @@
+package com.hansdesk.rxnet;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * SignalSource 하나가 소유하는 hashed timing wheel.
+ * 시간을 tickNanos 단위로 나누고, 만료될 tick에 해당하는 bucket에 Timeout을 연결해 둔다.
+ * 추가와 취소는 O(1)이고 만료 처리는 tick마다 bucket 하나만 확인하므로 수십만 개의 Timeout도 부담이 없다.
+ * selector loop이 select(timeout)에서 깨어날 때마다 expire()를 호출해서 구동한다. removeLater() 이외에는 SignalSource thread에서만 사용한다.
+ */
+class HashedWheelTimer {
+    /**
+     * 같은 bucket에 속한 Timeout들의 doubly linked list.
+     */
+    final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null)
+                head = timeout;
+            else
+                tail.next = timeout;
+            tail = timeout;
+            pending++;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.bucket != this)
+                return;
+
+            if (timeout.prev == null)
+                head = timeout.next;
+            else
+                timeout.prev.next = timeout.next;
+            if (timeout.next == null)
+                tail = timeout.prev;
+            else
+                timeout.next.prev = timeout.prev;
+
+            timeout.bucket = null;
+            timeout.prev = timeout.next = null;
+            pending--;
+        }
+
+        /**
+         * 이번 바퀴에 만료되는 Timeout을 실행하고 나머지는 남은 바퀴 수를 줄인다.
+         */
+        void expire() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    if (timeout.expire()) {
+                        try {
+                            timeout.task.run();
+                        } catch (Exception e) {
+                            e.printStackTrace(); // 작업 하나의 실패 때문에 selector loop이 중단되어서는 안 된다.
+                        }
+                    }
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+    }
+
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long tickNanos;
+    private final long startTime;
+    private long tick = 0; // 다음에 처리할 tick.
+    private int pending = 0;
+    private boolean expiring = false;
+    private final ArrayDeque<Timeout> deferred = new ArrayDeque<>(); // 만료 처리 중에 추가된 timeout.
+    // 다른 thread에서 또는 만료 처리 중에 취소된 timeout. 대기중인 timeout이 있으면 loop이 tick마다 깨어나므로 곧 제거된다.
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param tickMillis tick 하나의 길이. (ms) 만료 시간의 정밀도가 된다.
+     * @param wheelSize bucket 수. 2의 거듭제곱으로 올림된다.
+     */
+    HashedWheelTimer(long tickMillis, int wheelSize) {
+        int size = Integer.highestOneBit(Math.max(wheelSize, 2) - 1) << 1;
+        this.wheel = new Bucket[size];
+        for (int inx = 0; inx < size; inx++)
+            wheel[inx] = new Bucket();
+        this.mask = size - 1;
+        this.tickNanos = tickMillis * 1_000_000L;
+        this.startTime = System.nanoTime();
+    }
+
+    /**
+     * timeout을 wheel에 추가한다. 이미 지난 시간이면 다음 tick에 만료된다.
+     */
+    void add(Timeout timeout) {
+        if (timeout.isCancelled())
+            return;
+        if (expiring) { // 처리중인 bucket에 추가되지 않도록 만료 처리가 끝난 후에 추가한다.
+            deferred.addLast(timeout);
+            return;
+        }
+        if (pending == 0) // 대기중인 timeout이 없는 동안 지나간 tick은 처리할 필요가 없다.
+            tick = Math.max(tick, (System.nanoTime() - startTime) / tickNanos);
+
+        long ticks = Math.max((timeout.deadline - startTime) / tickNanos, tick);
+        timeout.remainingRounds = (ticks - tick) / wheel.length;
+        wheel[(int) (ticks & mask)].add(timeout);
+    }
+
+    /**
+     * 취소된 timeout을 bucket에서 제거한다. SignalSource thread에서 호출한다.
+     */
+    void remove(Timeout timeout) {
+        if (expiring) // 처리중인 bucket의 list를 바꾸지 않도록 만료 처리가 끝난 후에 제거한다.
+            cancelled.offer(timeout);
+        else if (timeout.bucket != null)
+            timeout.bucket.remove(timeout);
+    }
+
+    /**
+     * 다른 thread에서 취소된 timeout을 SignalSource thread가 제거하도록 넘긴다. 어느 thread에서나 호출할 수 있다.
+     */
+    void removeLater(Timeout timeout) {
+        cancelled.offer(timeout);
+    }
+
+    /**
+     * 지금까지 끝난 tick들의 bucket을 처리한다.
+     */
+    void expire() {
+        purgeCancelled();
+        long now = System.nanoTime();
+        expiring = true;
+        try {
+            while ((pending > 0) && (now - startTime >= (tick + 1) * tickNanos)) {
+                Bucket bucket = wheel[(int) (tick & mask)];
+                tick++;
+                bucket.expire();
+            }
+        } finally {
+            expiring = false;
+        }
+
+        purgeCancelled();
+        Timeout timeout;
+        while ((timeout = deferred.pollFirst()) != null)
+            add(timeout);
+    }
+
+    /**
+     * select()에서 기다릴 시간을 계산한다.
+     *
+     * @return 다음 tick이 끝날 때까지 남은 시간. (ms) 대기중인 timeout이 없으면 0.
+     */
+    long nextTimeoutMillis() {
+        purgeCancelled();
+        if (pending == 0)
+            return 0; // select()를 시간 제한 없이 기다린다.
+
+        long remaining = startTime + (tick + 1) * tickNanos - System.nanoTime();
+        return Math.max(1, (remaining + 999_999) / 1_000_000);
+    }
+
+    private void purgeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) // 아직 추가되기 전이면 add()에서 무시된다.
+                timeout.bucket.remove(timeout);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.hansdesk.rxnet;
+
+/**
+ * Handler.onIdle()로 전달되는 idle 종류.
+ */
+public enum IdleState {
+    /** readerIdleTime 동안 read된 데이터가 없다. */
+    READER_IDLE,
+    /** writerIdleTime 동안 write된 데이터가 없다. */
+    WRITER_IDLE,
+    /** allIdleTime 동안 read나 write된 데이터가 없다. */
+    ALL_IDLE
+}
@@ -0,0 +1,158 @@
+package com.hansdesk.rxnet;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * chunk를 2의 거듭제곱 크기의 size class로 나누어 재사용하는 allocator.
+ * 반환된 chunk는 먼저 반환한 SignalSource thread의 cache에 보관되고, cache가 가득 차면 모든 thread가 공유하는 arena에 보관된다.
+ * arena에 보관되는 chunk의 총 크기는 maxArenaBytes를 넘지 않으며 넘치는 chunk는 garbage collection에 맡긴다.
+ * maxChunkSize보다 큰 chunk는 pooling 하지 않는다.
+ * direct로 생성하면 chunk가 off-heap 메모리(ByteBuffer.allocateDirect())에 할당되어 socket I/O 시에 JDK 내부의 임시 direct buffer로
+ * 복사하는 과정이 생략된다. direct chunk는 할당 비용이 크므로 반드시 pooling해서 사용한다.
+ */
+public class PooledBufferAllocator implements BufferAllocator {
+    public static final int DEFAULT_MIN_CHUNK_SIZE = 64;
+    public static final int DEFAULT_MAX_CHUNK_SIZE = 1 << 20;
+    public static final long DEFAULT_MAX_ARENA_BYTES = 32L << 20;
+
+    // thread cache 하나가 size class 하나에 보관할 수 있는 최대 byte 수.
+    private static final int THREAD_CACHE_BYTES = 256 * 1024;
+    private static final int THREAD_CACHE_MAX_ENTRIES = 64;
+
+    /**
+     * SignalSource thread 하나가 가지는 cache. 자신의 thread에서만 접근하므로 동기화하지 않는다.
+     */
+    private class ThreadCache {
+        private final ArrayDeque<ByteBuffer>[] chunks;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        ThreadCache() {
+            chunks = new ArrayDeque[sizeClassCount];
+            for (int inx = 0; inx < sizeClassCount; inx++)
+                chunks[inx] = new ArrayDeque<>(threadCacheCapacity(inx));
+        }
+
+        ByteBuffer poll(int sizeClass) {
+            return chunks[sizeClass].pollLast();
+        }
+
+        boolean offer(int sizeClass, ByteBuffer chunk) {
+            if (chunks[sizeClass].size() >= threadCacheCapacity(sizeClass))
+                return false;
+            chunks[sizeClass].addLast(chunk);
+            return true;
+        }
+    }
+
+    private final boolean direct;
+    private final int minChunkShift;
+    private final int sizeClassCount;
+    private final long maxArenaBytes;
+
+    private final Queue<ByteBuffer>[] arena;
+    private final AtomicLong arenaBytes = new AtomicLong();
+    private final ThreadLocal<ThreadCache> threadCaches = ThreadLocal.withInitial(ThreadCache::new);
+
+    public PooledBufferAllocator() {
+        this(false);
+    }
+
+    public PooledBufferAllocator(boolean direct) {
+        this(direct, DEFAULT_MIN_CHUNK_SIZE, DEFAULT_MAX_CHUNK_SIZE, DEFAULT_MAX_ARENA_BYTES);
+    }
+
+    /**
+     * @param direct true이면 off-heap chunk를, false이면 heap chunk를 할당한다.
+     * @param minChunkSize 가장 작은 size class의 크기. 2의 거듭제곱이어야 한다.
+     * @param maxChunkSize 가장 큰 size class의 크기. 2의 거듭제곱이어야 한다.
+     * @param maxArenaBytes 공유 arena에 보관할 chunk들의 최대 총 크기.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public PooledBufferAllocator(boolean direct, int minChunkSize, int maxChunkSize, long maxArenaBytes) {
+        if ((minChunkSize <= 0) || (Integer.bitCount(minChunkSize) != 1))
+            throw new IllegalArgumentException("minChunkSize must be a power of 2: " + minChunkSize);
+        if ((maxChunkSize < minChunkSize) || (Integer.bitCount(maxChunkSize) != 1))
+            throw new IllegalArgumentException("maxChunkSize must be a power of 2 not less than minChunkSize: " + maxChunkSize);
+
+        this.direct = direct;
+        this.minChunkShift = Integer.numberOfTrailingZeros(minChunkSize);
+        this.sizeClassCount = Integer.numberOfTrailingZeros(maxChunkSize) - minChunkShift + 1;
+        this.maxArenaBytes = maxArenaBytes;
+
+        arena = new Queue[sizeClassCount];
+        for (int inx = 0; inx < sizeClassCount; inx++)
+            arena[inx] = new ConcurrentLinkedQueue<>();
+    }
+
+    @Override
+    public ByteBuffer allocate(int capacity) {
+        int sizeClass = sizeClassOf(capacity);
+        if (sizeClass >= sizeClassCount) // pooling 대상이 아니다.
+            return newChunk(capacity);
+
+        ByteBuffer chunk = null;
+        if (SignalSource.current() != null)
+            chunk = threadCaches.get().poll(sizeClass);
+        if (chunk == null) {
+            chunk = arena[sizeClass].poll();
+            if (chunk != null)
+                arenaBytes.addAndGet(-chunk.capacity());
+        }
+        if (chunk == null)
+            chunk = newChunk(sizeOf(sizeClass));
+
+        return chunk;
+    }
+
+    @Override
+    public void release(ByteBuffer chunk) {
+        int capacity = chunk.capacity();
+        int sizeClass = sizeClassOf(capacity);
+        if ((sizeClass >= sizeClassCount) || (sizeOf(sizeClass) != capacity) || (chunk.isDirect() != direct))
+            return; // 이 allocator가 할당한 chunk가 아니다.
+
+        chunk.clear();
+        if ((SignalSource.current() != null) && threadCaches.get().offer(sizeClass, chunk))
+            return;
+
+        if (arenaBytes.addAndGet(capacity) <= maxArenaBytes)
+            arena[sizeClass].offer(chunk);
+        else
+            arenaBytes.addAndGet(-capacity); // arena가 가득 찼다. garbage collection에 맡긴다.
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * 공유 arena에 보관중인 chunk들의 총 크기를 반환한다.
+     *
+     * @return arena에 보관중인 byte 수.
+     */
+    public long arenaBytes() {
+        return arenaBytes.get();
+    }
+
+    private ByteBuffer newChunk(int capacity) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    private int sizeClassOf(int capacity) {
+        if (capacity <= (1 << minChunkShift))
+            return 0;
+        return (32 - Integer.numberOfLeadingZeros(capacity - 1)) - minChunkShift;
+    }
+
+    private int sizeOf(int sizeClass) {
+        return 1 << (sizeClass + minChunkShift);
+    }
+
+    private int threadCacheCapacity(int sizeClass) {
+        return Math.max(1, Math.min(THREAD_CACHE_MAX_ENTRIES, THREAD_CACHE_BYTES / sizeOf(sizeClass)));
+    }
+}
@@ -0,0 +1,88 @@
+package com.hansdesk.rxnet;
+
+/**
+ * 최근에 socket에서 읽은 크기를 보고 다음 read에 준비할 buffer 크기를 예측한다.
+ * read가 준비한 크기를 모두 채웠으면 즉시 크게 늘리고, 작은 read가 두 번 연속되었을 때만 한 단계 줄인다.
+ * 크기는 512까지는 16 단위로, 그 이상은 2배씩 커지는 표에서 고르므로 작은 크기에서는 세밀하게 조정된다.
+ * channel마다 하나씩 사용하며 selector thread에서만 호출된다.
+ */
+class ReceiveSizePredictor {
+    private static final int INDEX_INCREMENT = 4;
+    private static final int INDEX_DECREMENT = 1;
+    private static final int[] SIZE_TABLE;
+
+    static {
+        int linear = 512 / 16 - 1; // 16, 32, ..., 496
+        int exponential = 31 - 9; // 512, 1024, ..., 1 << 30
+        SIZE_TABLE = new int[linear + exponential];
+        for (int inx = 0; inx < linear; inx++)
+            SIZE_TABLE[inx] = (inx + 1) * 16;
+        for (int inx = 0; inx < exponential; inx++)
+            SIZE_TABLE[linear + inx] = 512 << inx;
+    }
+
+    private final int minIndex;
+    private final int maxIndex;
+    private int index;
+    private int nextSize;
+    private boolean decreaseNow = false; // 직전 read도 작았으면 true.
+
+    /**
+     * @param minimum 예측 크기의 하한.
+     * @param initial 처음 read에 준비할 크기.
+     * @param maximum 예측 크기의 상한.
+     */
+    ReceiveSizePredictor(int minimum, int initial, int maximum) {
+        if ((minimum <= 0) || (initial < minimum) || (maximum < initial))
+            throw new IllegalArgumentException("invalid sizes: minimum=" + minimum + ", initial=" + initial + ", maximum=" + maximum);
+
+        minIndex = indexOf(minimum);
+        maxIndex = Math.max(minIndex, (SIZE_TABLE[indexOf(maximum)] > maximum) ? indexOf(maximum) - 1 : indexOf(maximum));
+        index = Math.min(Math.max(indexOf(initial), minIndex), maxIndex);
+        nextSize = SIZE_TABLE[index];
+    }
+
+    /**
+     * @return 다음 read에 준비할 크기.
+     */
+    int nextSize() {
+        return nextSize;
+    }
+
+    /**
+     * read 한 번의 결과를 반영한다.
+     *
+     * @param bytes 읽은 byte 수.
+     */
+    void record(long bytes) {
+        if (bytes <= SIZE_TABLE[Math.max(0, index - INDEX_DECREMENT)]) {
+            if (decreaseNow) {
+                index = Math.max(index - INDEX_DECREMENT, minIndex);
+                nextSize = SIZE_TABLE[index];
+                decreaseNow = false;
+            } else {
+                decreaseNow = true;
+            }
+        } else if (bytes >= nextSize) {
+            index = Math.min(index + INDEX_INCREMENT, maxIndex);
+            nextSize = SIZE_TABLE[index];
+            decreaseNow = false;
+        }
+    }
+
+    /**
+     * size 이상인 가장 작은 표의 index. 표의 최대값보다 크면 마지막 index.
+     */
+    private static int indexOf(int size) {
+        int low = 0;
+        int high = SIZE_TABLE.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (SIZE_TABLE[mid] < size)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+}
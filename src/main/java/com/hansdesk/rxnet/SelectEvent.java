@@ -0,0 +1,36 @@
+package com.hansdesk.rxnet;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * selector loop 한 번의 JFR event. event의 시간은 select()가 반환된 후 이벤트, 작업, timer를 처리한 시간이고
+ * select()에서 기다린 시간은 selectNanos에 따로 기록된다. 기다린 시간까지 포함하면 한가한 loop이 모두 threshold를 넘기 때문이다.
+ * 기록 중이 아니면 shouldCommit()이 false이므로 비용이 거의 없다.
+ * 기본 threshold 이하의 loop은 기록되지 않는다. 모두 보려면 JFR 설정에서 threshold를 0 ms로 지정한다.
+ */
+@Name("com.hansdesk.rxnet.Select")
+@Label("Select Loop")
+@Category({"RxNet", "SignalSource"})
+@Description("Selector loop iteration: dispatching selected keys, tasks and timers after select() returned")
+@StackTrace(false)
+@Threshold("1 ms")
+final class SelectEvent extends Event {
+    @Label("Select Nanos")
+    @Description("Time spent blocked in selector.select()")
+    @Timespan(Timespan.NANOSECONDS)
+    long selectNanos;
+
+    @Label("Selected Keys")
+    int selectedKeys;
+
+    @Label("Tasks")
+    @Description("Tasks executed from the task queue")
+    int tasks;
+}
@@ -1,9 +1,25 @@
 package com.hansdesk.rxnet;
 
+import java.io.IOException;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 
 public interface Selectable {
     SelectableChannel channel();
     void selectionKey(SelectionKey key);
+
+    /**
+     * SignalSource.register(Selectable, int)로 등록한 경우, 이벤트가 발생하면 selector thread에서 직접 호출된다.
+     * Subject를 거치지 않으므로 boxing이나 scheduler 전환이 없다.
+     *
+     * @param ops 발생한 이벤트. (SelectionKey.readyOps() 또는 signal()로 보낸 값)
+     */
+    default void onSignal(int ops) throws IOException {}
+
+    /**
+     * onSignal()에서 예외가 발생하면 selector thread에서 호출된다.
+     *
+     * @param e 발생한 예외.
+     */
+    default void onSignalError(Throwable e) {}
 }
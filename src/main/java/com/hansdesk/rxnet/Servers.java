@@ -4,4 +4,8 @@ public class Servers {
     public static TcpServer newTcpServer() {
         return new TcpServer();
     }
+
+    public static UdpServer newUdpServer() {
+        return new UdpServer();
+    }
 }
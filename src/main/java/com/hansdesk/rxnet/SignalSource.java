@@ -1,148 +1,268 @@
 package com.hansdesk.rxnet;
 
-import io.reactivex.rxjava3.core.Observable;
-import io.reactivex.rxjava3.disposables.Disposable;
-import io.reactivex.rxjava3.schedulers.Schedulers;
+import com.hansdesk.rxnet.util.MBeans;
 import io.reactivex.rxjava3.subjects.Subject;
 
+import javax.management.ObjectName;
 import java.io.IOException;
-import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 생성 즉시 selector를 통한 이벤트를 모니터링하고 적절히 값을 발행하는 thread가 시작된다.
- * 사용되는 scheduler는 Schedulers.computation()이다.
+ * selector loop은 thread 하나를 계속 점유하므로 scheduler를 빌리지 않고 ThreadFactory로 생성한 전용 thread에서 실행된다.
+ * Selectable로 등록하면 selector thread가 Selectable.onSignal()을 직접 호출하고,
+ * Subject로 등록하면 이벤트가 Subject로 발행된다. (Rx 방식)
+ * 각 SignalSource는 hashed timing wheel을 가지고 있어서 schedule()로 예약한 작업을 같은 thread에서 실행한다.
+ * 여러 개의 SignalSource를 사용하려면 SignalSourceGroup을 사용한다.
  * TCP connection이 들어오면 TcpChannel을 발행할 것이고 peer로부터 data가 들어오면 Buffer를 발행할 것이다.
  */
-class SignalSource {
+public class SignalSource {
 
-    private static class RegisterRequest {
-        public Selectable selectable;
-        public int ops;
-        public Subject<Integer> receiver;
+    private static final ThreadLocal<SignalSource> current = new ThreadLocal<>();
+    private static final AtomicLong ids = new AtomicLong();
+    private static final long TIMER_TICK_MILLIS = 10;
+    private static final int TIMER_WHEEL_SIZE = 512;
 
-        public RegisterRequest(Selectable selectable, int ops, Subject<Integer> receiver) {
-            this.selectable = selectable;
-            this.ops = ops;
-            this.receiver = receiver;
-        }
+    private final long id = ids.incrementAndGet(); // ThreadFactory가 같은 thread 이름을 줄 수 있으므로 MBean 이름에 붙인다.
+    private final Selector selector;
+    private final Thread thread;
+    // 다른 thread에서 요청한 작업. 여러 thread가 넣고 selector loop만 꺼내므로 lock 없는 queue를 사용한다.
+    private final Queue<Runnable> taskQueue = new ConcurrentLinkedQueue<>();
+    // wakeup()이 이미 요청되었으면 true. select 한 번에 wakeup()은 최대 한 번만 호출된다.
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    // schedule()로 예약된 작업. select()는 다음 tick까지만 기다린다.
+    private final HashedWheelTimer timer = new HashedWheelTimer(TIMER_TICK_MILLIS, TIMER_WHEEL_SIZE);
+    private final SignalSourceMetrics metrics = new SignalSourceMetrics();
+
+    SignalSource() {
+        this(SignalSources.defaultThreadFactory());
+    }
 
-        public void register(Selector selector) throws ClosedChannelException {
-            selectable.selectionKey(selectable.channel().register(selector, ops, receiver));
+    /**
+     * @param threadFactory selector loop thread를 생성할 factory.
+     */
+    SignalSource(ThreadFactory threadFactory) {
+        try {
+            selector = Selector.open(); // 여기서 IOException이 발생한다면 더 이상 진행은 의미없다.
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
+
+        thread = threadFactory.newThread(this::run);
+        thread.start();
     }
 
-    private static class SignalRequest {
-        public int signal;
-        public Subject<Integer> receiver;
+    private void run() {
+        ObjectName objectName = MBeans.register(metrics, "SignalSource", thread.getName() + "#" + id);
+        try {
+            current.set(this);
+            while (selector.isOpen()) {
+                // flag를 먼저 내린 후에 queue를 확인해야 그 사이에 들어온 작업의 wakeup()을 놓치지 않는다.
+                wakeupPending.set(false);
+                SelectEvent event = new SelectEvent();
+                long selectStarted = event.isEnabled() ? System.nanoTime() : 0;
+                int count = taskQueue.isEmpty() ? select(timer.nextTimeoutMillis()) : selector.selectNow();
+                long started = System.nanoTime();
+                event.begin();
+                if (count > 0) {
+                    metrics.selectedKeys.add(count);
+                    final Set<SelectionKey> keys = selector.selectedKeys();
+                    for (SelectionKey key : keys)
+                        if (key.isValid())
+                            dispatch(key.attachment(), key.readyOps());
+                    keys.clear();
+                }
+
+                int tasks = runTasks();
+                timer.expire();
+                metrics.recordIteration(System.nanoTime() - started);
 
-        public SignalRequest(int signal, Subject<Integer> receiver) {
-            this.signal = signal;
-            this.receiver = receiver;
+                event.end();
+                if (event.shouldCommit()) {
+                    event.selectNanos = started - selectStarted;
+                    event.selectedKeys = count;
+                    event.tasks = tasks;
+                    event.commit();
+                }
+            }
+        } catch (ClosedSelectorException e) {
+            // stop()에 의해서 selector가 닫혔다.
+        } catch (Throwable e) {
+            e.printStackTrace();
+        } finally {
+            current.remove();
+            close();
+            MBeans.unregister(objectName);
         }
     }
 
-    private Disposable disposable;
-    private final Selector selector;
-    private final List<RegisterRequest> registerRequestQueue = new ArrayList<>();
-    private final List<SignalRequest> signalRequestQueue = new ArrayList<>();
+    /**
+     * 현재 thread에서 selector loop을 실행중인 SignalSource를 반환한다.
+     *
+     * @return 현재 thread의 SignalSource. SignalSource thread가 아니면 null.
+     */
+    static SignalSource current() {
+        return current.get();
+    }
 
-    SignalSource() {
-        try {
-            selector = Selector.open(); // 여기서 IOException이 발생한다면 더 이상 진행은 의미없다.
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    private int select(long timeoutMillis) throws IOException {
+        return (timeoutMillis > 0) ? selector.select(timeoutMillis) : selector.select();
+    }
+
+    /**
+     * queue에 쌓인 작업을 모두 실행한다. 실행 중에 추가된 작업은 다음 cycle에서 실행된다.
+     *
+     * @return 실행한 작업의 수.
+     */
+    private int runTasks() {
+        int executed = 0;
+        for (int remaining = taskQueue.size(); remaining > 0; remaining--) {
+            Runnable task = taskQueue.poll();
+            if (task == null)
+                break;
+
+            executed++;
+            try {
+                task.run();
+            } catch (Exception e) {
+                e.printStackTrace(); // 작업 하나의 실패 때문에 selector loop이 중단되어서는 안 된다.
+            }
         }
 
-        disposable = Observable.<SelectionKey>create(emitter -> {
-                    try {
-                        while (selector.isOpen()) {
-                            throw new RuntimeException("Test");
-
-                            int count = selector.select();
-                            if (count > 0) {
-                                final Set<SelectionKey> keys = selector.selectedKeys();
-                                for (SelectionKey key : keys)
-                                    if (key.isValid())
-                                        emitter.onNext(key);
-                                keys.clear();
-                            }
-
-                            if (!signalRequestQueue.isEmpty()) {
-                                synchronized (signalRequestQueue) {
-                                    for (SignalRequest request : signalRequestQueue)
-                                        request.receiver.onNext(request.signal);
-                                    signalRequestQueue.clear();
-                                }
-                            }
-
-                            if (!registerRequestQueue.isEmpty()) {
-                                synchronized (registerRequestQueue) {
-                                    for (RegisterRequest request : registerRequestQueue)
-                                        request.register(selector);
-                                    registerRequestQueue.clear();
-                                }
-                            }
-                        }
-
-                        emitter.onComplete();
-                    } catch (Throwable e) {
-                        emitter.onError(e);
-                    }
-                })
-                .subscribeOn(Schedulers.computation()) // current thread가 아닌 다른 thread여야 한다.
-                .subscribe(this::onNext, this::onError, this::onComplete);
-    }
-
-    private void onNext(SelectionKey key) {
-        try {
-            //noinspection unchecked
-            ((Subject<Integer>) key.attachment()).onNext(key.readyOps());
-        } catch (Exception e) {
-            //noinspection unchecked
-            ((Subject<Integer>) key.attachment()).onError(e);
+        metrics.tasksExecuted.add(executed);
+        return executed;
+    }
+
+    /**
+     * task를 selector loop thread에서 실행하도록 요청한다. 요청한 순서대로 실행된다.
+     * selector loop thread에서 호출하면 현재 cycle의 이벤트 처리가 끝난 후에 실행된다.
+     *
+     * @param task selector loop thread에서 실행할 작업.
+     */
+    void execute(Runnable task) {
+        taskQueue.offer(task);
+        if ((current.get() != this) && wakeupPending.compareAndSet(false, true)) {
+            metrics.wakeups.increment();
+            selector.wakeup(); // select 중인 loop을 깨운다. 이미 요청되었으면 다시 호출하지 않는다.
         }
     }
 
-    private void onError(Throwable e) {
-        try {
-            e.printStackTrace();
-            stop();
-        } catch (IOException ex) {
-            ex.printStackTrace();
+    /**
+     * delayMillis 후에 task를 selector loop thread에서 실행하도록 예약한다. 어느 thread에서나 호출할 수 있다.
+     * 실행 시간의 정밀도는 timer의 tick(10ms)이다.
+     *
+     * @param delayMillis 실행할 때까지의 시간. (ms)
+     * @param task 실행할 작업.
+     * @return 예약을 취소할 수 있는 Timeout.
+     */
+    public Timeout schedule(long delayMillis, Runnable task) {
+        Timeout timeout = new Timeout(task, System.nanoTime() + delayMillis * 1_000_000L, this);
+        if (current.get() == this)
+            timer.add(timeout);
+        else
+            execute(() -> timer.add(timeout));
+        return timeout;
+    }
+
+    /**
+     * 취소된 timeout을 timer에서 제거한다. 다른 thread에서 호출하면 selector loop이 다음에 깨어날 때 제거한다.
+     *
+     * @param timeout 취소된 timeout.
+     */
+    void cancel(Timeout timeout) {
+        if (current.get() == this)
+            timer.remove(timeout);
+        else
+            timer.removeLater(timeout);
+    }
+
+    /**
+     * 이벤트를 receiver로 전달한다. Selectable이면 직접 호출하고 Subject이면 발행한다.
+     */
+    private void dispatch(Object receiver, int ops) {
+        if (receiver instanceof Selectable) {
+            Selectable selectable = (Selectable) receiver;
+            try {
+                selectable.onSignal(ops);
+            } catch (Throwable e) {
+                selectable.onSignalError(e);
+            }
+        } else {
+            //noinspection unchecked
+            Subject<Integer> subject = (Subject<Integer>) receiver;
+            try {
+                subject.onNext(ops);
+            } catch (Exception e) {
+                subject.onError(e);
+            }
         }
     }
 
-    private void onComplete() {
+    private void close() {
         try {
-            stop();
+            selector.close();
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
-    private boolean isRunning() {
-        return ((disposable != null) && !disposable.isDisposed());
-    }
-
     /**
      * event 생성을 끝낸다.
      * 한 번 stop하면 다시 시작할 수 있는 방법은 없다.
      */
     public void stop() throws IOException {
-        if (isRunning())
-            disposable.dispose();
-
         if (selector.isOpen())
             selector.close(); // selector가 blocked 상태라도 즉시 interrupt하고 close시킨다.
     }
 
     /**
-     * selector에 발생하는 ops 이벤트를 받을 수 있도록 channel을 등록한다. channel 객체는 Selectable 인터페이스를 구현해야 한다.
+     * selector loop이 실행중인 thread를 반환한다.
+     *
+     * @return selector loop thread.
+     */
+    public Thread thread() {
+        return thread;
+    }
+
+    /**
+     * selector loop의 통계를 반환한다. loop이 실행되는 동안 JMX에도
+     * "com.hansdesk.rxnet:type=SignalSource,name=<thread 이름>#<번호>"로 등록된다.
+     *
+     * @return 이 SignalSource의 통계.
+     */
+    public SignalSourceMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * selector에 발생하는 ops 이벤트를 받을 수 있도록 channel을 등록한다.
+     * 이벤트가 발생하면 selector thread에서 selectable.onSignal()이 직접 호출된다.
+     * 등록이 된 후부터 이벤트를 받을 수 있다.
+     *
+     * @param selectable selector에 등록해서 이벤트를 받을 객체.
+     * @param ops 관심이 있는 ops값. (OP_ACCEPT, OP_READ, ...)
+     */
+    public void register(Selectable selectable, int ops) {
+        execute(() -> {
+            try {
+                selectable.selectionKey(selectable.channel().register(selector, ops, selectable));
+            } catch (Exception e) {
+                selectable.onSignalError(e); // 등록하지 못한 channel 때문에 selector loop이 중단되어서는 안 된다.
+            }
+        });
+    }
+
+    /**
+     * selector에 발생하는 ops 이벤트를 받을 수 있도록 channel을 등록한다. 이벤트는 receiver로 발행된다.
+     * Rx operator를 적용할 수 있지만 이벤트마다 boxing이 발생하므로 빠른 처리가 필요하면 register(Selectable, int)를 사용한다.
      * 등록이 된 후부터 이벤트를 받을 수 있다.
      *
      * @param selectable selector에 등록해서 selectionKey의 ops에 대응하는 이벤트를 받을 객체. Selectable 인터페이스를 구현해야 한다.
@@ -150,10 +270,13 @@ class SignalSource {
      * @param receiver 이벤트를 수신할 Subject 객체.
      */
     public void register(Selectable selectable, int ops, Subject<Integer> receiver) {
-        synchronized (registerRequestQueue) {
-            registerRequestQueue.add(new RegisterRequest(selectable, ops, receiver));
-        }
-        selector.wakeup();
+        execute(() -> {
+            try {
+                selectable.selectionKey(selectable.channel().register(selector, ops, receiver));
+            } catch (Exception e) {
+                receiver.onError(e); // 등록하지 못한 channel 때문에 selector loop이 중단되어서는 안 된다.
+            }
+        });
     }
 
     /**
@@ -164,9 +287,16 @@ class SignalSource {
      * @param receiver signal을 받을 Subject 객체.
      */
     public void signal(int signal, Subject<Integer> receiver) {
-        synchronized (signalRequestQueue) {
-            signalRequestQueue.add(new SignalRequest(signal, receiver));
-        }
-        selector.wakeup();
+        execute(() -> dispatch(receiver, signal));
+    }
+
+    /**
+     * selectable의 onSignal()이 selector thread에서 signal을 받도록 요청한다.
+     *
+     * @param signal 보낼 signal
+     * @param selectable signal을 받을 객체.
+     */
+    public void signal(int signal, Selectable selectable) {
+        execute(() -> dispatch(selectable, signal));
     }
 }
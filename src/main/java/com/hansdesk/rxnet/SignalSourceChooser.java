@@ -0,0 +1,27 @@
+package com.hansdesk.rxnet;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SignalSourceGroup에서 새로운 channel을 담당할 SignalSource를 선택하는 전략.
+ * 한 번 선택된 SignalSource는 channel이 종료될 때까지 바뀌지 않는다.
+ */
+public interface SignalSourceChooser {
+    /**
+     * channel을 담당할 SignalSource를 선택한다.
+     *
+     * @param sources 선택 가능한 SignalSource 배열. 수정해서는 안 된다.
+     * @return 선택된 SignalSource.
+     */
+    SignalSource choose(SignalSource[] sources);
+
+    /**
+     * 순서대로 돌아가며 SignalSource를 선택하는 chooser를 생성한다.
+     *
+     * @return round-robin chooser.
+     */
+    static SignalSourceChooser roundRobin() {
+        AtomicInteger index = new AtomicInteger();
+        return sources -> sources[(index.getAndIncrement() & Integer.MAX_VALUE) % sources.length];
+    }
+}
@@ -0,0 +1,75 @@
+package com.hansdesk.rxnet;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 여러 개의 SignalSource(event loop)를 묶어서 관리한다.
+ * 각 SignalSource는 자신의 selector와 thread를 가지므로 I/O 처리가 core 수만큼 분산된다.
+ * channel은 next()로 선택된 SignalSource 하나에 등록되어 종료될 때까지 그 SignalSource에서만 처리된다.
+ */
+public class SignalSourceGroup {
+    private final SignalSource[] sources;
+    private final SignalSourceChooser chooser;
+
+    /**
+     * core 수만큼의 SignalSource를 가진 group을 생성한다.
+     */
+    public SignalSourceGroup() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public SignalSourceGroup(int size) {
+        this(size, SignalSourceChooser.roundRobin());
+    }
+
+    public SignalSourceGroup(int size, SignalSourceChooser chooser) {
+        this(size, chooser, SignalSources.defaultThreadFactory());
+    }
+
+    /**
+     * @param size SignalSource의 개수.
+     * @param chooser channel을 담당할 SignalSource를 선택하는 방법.
+     * @param threadFactory 각 SignalSource의 selector loop thread를 생성할 factory.
+     */
+    public SignalSourceGroup(int size, SignalSourceChooser chooser, ThreadFactory threadFactory) {
+        if (size <= 0)
+            throw new IllegalArgumentException("size must be positive: " + size);
+
+        this.sources = new SignalSource[size];
+        for (int inx = 0; inx < size; inx++)
+            sources[inx] = new SignalSource(threadFactory);
+        this.chooser = chooser;
+    }
+
+    /**
+     * 새로운 channel을 담당할 SignalSource를 chooser를 통해서 선택한다.
+     *
+     * @return 선택된 SignalSource.
+     */
+    public SignalSource next() {
+        return chooser.choose(sources);
+    }
+
+    public SignalSource get(int index) {
+        return sources[index];
+    }
+
+    public int size() {
+        return sources.length;
+    }
+
+    /**
+     * group에 속한 모든 SignalSource를 중지시킨다.
+     * 한 번 stop하면 다시 시작할 수 있는 방법은 없다.
+     */
+    public void stop() {
+        for (SignalSource source : sources) {
+            try {
+                source.stop();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.hansdesk.rxnet;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SignalSource 하나의 통계를 모은다. wakeups 이외에는 selector loop thread에서만 갱신된다.
+ */
+public class SignalSourceMetrics implements SignalSourceMetricsMBean {
+    final LongAdder loopIterations = new LongAdder();
+    final LongAdder selectedKeys = new LongAdder();
+    final LongAdder wakeups = new LongAdder();
+    final LongAdder tasksExecuted = new LongAdder();
+    final LongAdder busyTimeNanos = new LongAdder();
+    volatile long maxIterationNanos = 0;
+
+    /**
+     * select()에서 깨어난 후에 이벤트, 작업, timer를 처리하는 데 걸린 시간을 기록한다.
+     */
+    void recordIteration(long nanos) {
+        loopIterations.increment();
+        busyTimeNanos.add(nanos);
+        if (nanos > maxIterationNanos)
+            maxIterationNanos = nanos;
+    }
+
+    @Override
+    public long getLoopIterations() {
+        return loopIterations.sum();
+    }
+
+    @Override
+    public long getSelectedKeys() {
+        return selectedKeys.sum();
+    }
+
+    /**
+     * 다른 thread의 요청으로 selector.wakeup()을 호출한 횟수.
+     */
+    @Override
+    public long getWakeups() {
+        return wakeups.sum();
+    }
+
+    @Override
+    public long getTasksExecuted() {
+        return tasksExecuted.sum();
+    }
+
+    /**
+     * select()에서 기다린 시간을 제외하고 selector loop이 일을 한 시간의 합.
+     */
+    @Override
+    public long getBusyTimeNanos() {
+        return busyTimeNanos.sum();
+    }
+
+    /**
+     * 한 번의 loop에 걸린 가장 긴 시간. 이 값이 크면 handler가 selector thread를 오래 점유하고 있는 것이다.
+     */
+    @Override
+    public long getMaxIterationNanos() {
+        return maxIterationNanos;
+    }
+}
@@ -0,0 +1,13 @@
+package com.hansdesk.rxnet;
+
+/**
+ * SignalSource(selector loop) 하나의 통계. JMX로 조회할 수 있다.
+ */
+public interface SignalSourceMetricsMBean {
+    long getLoopIterations();
+    long getSelectedKeys();
+    long getWakeups();
+    long getTasksExecuted();
+    long getBusyTimeNanos();
+    long getMaxIterationNanos();
+}
@@ -1,9 +1,77 @@
 package com.hansdesk.rxnet;
 
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class SignalSources {
-    private static final SignalSource single = new SignalSource();
+    /**
+     * selector loop 전용 daemon thread를 생성한다. thread 이름은 "rxnet-signal-" 뒤에 번호가 붙는다.
+     */
+    private static class DefaultThreadFactory implements ThreadFactory {
+        static final DefaultThreadFactory instance = new DefaultThreadFactory();
+
+        private final AtomicInteger sequence = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "rxnet-signal-" + sequence.incrementAndGet());
+            thread.setDaemon(true); // selector loop 때문에 application이 종료되지 않아서는 안 된다.
+            return thread;
+        }
+    }
+
+    // 사용하지 않는 SignalSource의 thread가 생성되지 않도록 처음 사용될 때 생성한다.
+    private static class Single {
+        static final SignalSource source = new SignalSource();
+    }
+
+    private static class Group {
+        static final SignalSourceGroup group = new SignalSourceGroup();
+    }
 
     public static SignalSource single() {
-        return single;
+        return Single.source;
+    }
+
+    /**
+     * 서버들이 기본으로 공유하는 SignalSourceGroup을 반환한다. core 수만큼의 SignalSource를 가진다.
+     *
+     * @return 공유 SignalSourceGroup.
+     */
+    public static SignalSourceGroup group() {
+        return Group.group;
+    }
+
+    public static SignalSourceGroup newGroup(int size) {
+        return new SignalSourceGroup(size);
+    }
+
+    public static SignalSourceGroup newGroup(int size, SignalSourceChooser chooser) {
+        return new SignalSourceGroup(size, chooser);
+    }
+
+    /**
+     * threadFactory로 thread를 생성하는 SignalSourceGroup을 생성한다. SignalSource는 round robin으로 선택된다.
+     * newGroup(int, SignalSourceChooser)와 lambda로 호출할 때 구분되도록 이름을 따로 쓴다.
+     *
+     * @param size SignalSource 수.
+     * @param threadFactory selector loop thread를 생성할 ThreadFactory.
+     * @return 새 SignalSourceGroup.
+     */
+    public static SignalSourceGroup newGroupWithThreadFactory(int size, ThreadFactory threadFactory) {
+        return new SignalSourceGroup(size, SignalSourceChooser.roundRobin(), threadFactory);
+    }
+
+    public static SignalSourceGroup newGroup(int size, SignalSourceChooser chooser, ThreadFactory threadFactory) {
+        return new SignalSourceGroup(size, chooser, threadFactory);
+    }
+
+    /**
+     * SignalSource가 기본으로 사용하는 ThreadFactory를 반환한다.
+     *
+     * @return daemon thread를 생성하는 ThreadFactory.
+     */
+    public static ThreadFactory defaultThreadFactory() {
+        return DefaultThreadFactory.instance;
     }
 }
@@ -1,45 +1,287 @@
 package com.hansdesk.rxnet;
 
 import com.hansdesk.rxnet.util.Handlers;
-import io.reactivex.rxjava3.annotations.NonNull;
-import io.reactivex.rxjava3.core.Observer;
 import io.reactivex.rxjava3.disposables.Disposable;
 import io.reactivex.rxjava3.subjects.PublishSubject;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class TcpChannel implements Channel, Selectable {
-    private final PublishSubject<Integer> subject = PublishSubject.create();
-    private Disposable disposable;
+    private static final AtomicLong ids = new AtomicLong();
 
+    /**
+     * 한 종류의 idle 상태를 감시하는 timer. read나 write가 있을 때마다 다시 예약하지 않고, 만료되었을 때 마지막 활동 시간을
+     * 확인해서 남은 시간만큼 다시 예약한다. 그래서 channel마다 idle 종류별로 Timeout은 하나만 존재한다.
+     */
+    private class IdleTimer implements Runnable {
+        private final IdleState state;
+        private final long idleMillis;
+        private Timeout timeout;
+
+        IdleTimer(IdleState state, long idleMillis) {
+            this.state = state;
+            this.idleMillis = idleMillis;
+        }
+
+        void start() {
+            timeout = source.schedule(idleMillis, this);
+        }
+
+        void cancel() {
+            if (timeout != null)
+                timeout.cancel();
+        }
+
+        @Override
+        public void run() {
+            if (stopped)
+                return;
+
+            long lastActivity;
+            if (state == IdleState.READER_IDLE)
+                lastActivity = lastReadTime;
+            else if (state == IdleState.WRITER_IDLE)
+                lastActivity = lastWriteTime;
+            else
+                lastActivity = Math.max(lastReadTime, lastWriteTime);
+
+            long remaining = idleMillis - (System.nanoTime() - lastActivity) / 1_000_000;
+            if (remaining > 0) {
+                timeout = source.schedule(remaining, this); // 그 사이에 활동이 있었다.
+            } else {
+                timeout = source.schedule(idleMillis, this);
+                handler.onIdle(TcpChannel.this, state);
+                flushIfPending(); // onIdle()에서 write()한 데이터를 전송한다.
+            }
+        }
+    }
+
+    private final long id = ids.incrementAndGet();
+    private boolean directDispatch = true;
+    private Disposable disposable; // Subject로 이벤트를 받는 경우에만 사용된다.
+    private volatile boolean stopped;
+
+    private volatile SignalSource source;
     private final SocketChannel channel;
-    private final Buffer inBuffer = new Buffer(1024);
-    private final Buffer outBuffer = new Buffer(1024);
+    private final BufferAllocator allocator;
+    private final Buffer inBuffer;
+    private Buffer outBuffer;
+    // outBuffer의 데이터 다음에 전송될 FileRegion과 Buffer들. 요청된 순서대로 전송된다.
+    private final ArrayDeque<Object> outQueue = new ArrayDeque<>();
     private SelectionKey selectionKey;
+    private boolean writeInterest; // OP_WRITE를 설정했으면 true. interestOps()를 불필요하게 호출하지 않도록 기억한다.
+    private boolean inOnOutbound; // handler.onOutbound()를 호출하는 중이면 true.
+
+    // 전송 대기중인 byte 수가 highWaterMark를 넘으면 writable이 false가 되고 lowWaterMark 아래로 내려가면 다시 true가 된다.
+    private int lowWaterMark = 32 * 1024;
+    private int highWaterMark = 64 * 1024;
+    private volatile long pendingOutboundBytes = 0; // selector thread에서만 변경되고 모니터링을 위해서 다른 thread에서 읽을 수 있다.
+    // 다른 thread에서 write()되어 selector thread의 task queue에서 기다리는 byte 수. write()한 thread가 바로 더한다.
+    private final AtomicLong queuedOutboundBytes = new AtomicLong();
+    private long bytesWritten = 0; // socket으로 write한 byte 수의 합.
+    private final AtomicBoolean writable = new AtomicBoolean(true); // 어느 thread에서나 바뀔 수 있다.
+    private boolean notifiedWritable = true; // handler에게 마지막으로 알린 writability. selector thread에서만 사용된다.
+
+    // idle 상태 감시. 시간은 System.nanoTime() 기준이다.
+    private long readerIdleMillis = 0;
+    private long writerIdleMillis = 0;
+    private long allIdleMillis = 0;
+    private long lastReadTime;
+    private long lastWriteTime;
+    private IdleTimer[] idleTimers = new IdleTimer[0];
 
     private Handler handler = Handlers.EMPTY_CHANNEL_HANDLER;
+    private TcpMetrics metrics; // TcpServer가 accept한 channel만 통계를 남긴다.
+    private ReceiveSizePredictor receiveSizePredictor = new ReceiveSizePredictor(64, 1024, 64 * 1024);
+
+    // 한 번의 차례에 read/write할 최대 byte 수. 다 쓰고도 남은 일이 있으면 다른 channel들의 차례가 끝난 후에 이어서 처리한다.
+    private int maxReadBytesPerTurn = 256 * 1024;
+    private int maxWriteBytesPerTurn = 256 * 1024;
+    private boolean readTurnScheduled; // 이어서 read할 차례가 task queue에 예약되어 있으면 true.
+    private boolean writeTurnScheduled; // 이어서 write할 차례가 task queue에 예약되어 있으면 true.
+    private final Runnable readTurn = () -> {
+        readTurnScheduled = false;
+        if (!stopped) {
+            try {
+                handlerRead();
+            } catch (Exception e) {
+                onSignalError(e);
+            }
+        }
+    };
+    private final Runnable writeTurn = () -> {
+        writeTurnScheduled = false;
+        flush();
+    };
 
     public TcpChannel(SocketChannel channel) {
+        this(channel, BufferAllocators.pooled());
+    }
+
+    public TcpChannel(SocketChannel channel, BufferAllocator allocator) {
         this.channel = channel;
+        this.allocator = allocator;
+        this.inBuffer = new Buffer(allocator, 1024);
+        this.outBuffer = new Buffer(allocator, 1024);
     }
 
+    /**
+     * process 안에서 channel을 구별하는 번호. JFR event의 channelId로 기록된다.
+     *
+     * @return channel id.
+     */
+    public long id() {
+        return id;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 어느 thread에서나 호출할 수 있다. selector thread가 아니면 buffer의 내용을 넘겨받아서 selector thread에서 처리한다.
+     */
     @Override
     public void write(Buffer buffer) {
-        outBuffer.write(buffer);
-        selectionKey.interestOps(selectionKey.interestOps() | SelectionKey.OP_WRITE);
+        if (!inEventLoop()) {
+            Buffer snapshot = new Buffer(allocator, Math.max(1, Math.min(buffer.size(), 8192)));
+            snapshot.transferFrom(buffer); // 다 채워진 chunk는 복사하지 않고 넘겨받는다.
+            // selector thread가 처리하기 전에도 writability에 반영되어야 producer가 task queue를 무한히 채우지 않는다.
+            int size = snapshot.size();
+            addQueuedOutboundBytes(size);
+            updateWritability();
+            source.execute(() -> {
+                write(snapshot); // pendingOutboundBytes에 더한 후에 빼므로 그 사이에 writable로 잘못 바뀌지 않는다.
+                snapshot.release();
+                addQueuedOutboundBytes(-size);
+                updateWritability();
+            });
+            return;
+        }
+
+        if (stopped) { // 닫힌 channel로 write된 데이터는 버린다.
+            buffer.skip(buffer.size());
+            return;
+        }
+
+        int size = buffer.size();
+        if (outQueue.isEmpty() && !inOnOutbound) {
+            outBuffer.transferFrom(buffer); // 다 채워진 chunk는 복사하지 않고 넘겨받는다.
+        } else {
+            // 전송 대기중인 FileRegion이 있으면 그 뒤에 전송되어야 한다.
+            // onOutbound()에서 write()했으면 handler가 바꾼 outBuffer의 크기와 섞이지 않도록 outBuffer 뒤에 따로 둔다.
+            Object last = outQueue.peekLast();
+            if (last instanceof Buffer) {
+                ((Buffer) last).transferFrom(buffer);
+            } else {
+                Buffer pending = new Buffer(allocator, 1024);
+                pending.transferFrom(buffer);
+                outQueue.addLast(pending);
+            }
+        }
+        addPendingOutboundBytes(size);
+        updateWritability();
+    }
+
+    @Override
+    public FileRegion sendFile(FileChannel file, long position, long count) {
+        FileRegion region = new FileRegion(file, position, count);
+        if (inEventLoop())
+            queueFileRegion(region);
+        else
+            source.execute(() -> queueFileRegion(region));
+        return region;
+    }
+
+    private void queueFileRegion(FileRegion region) {
+        if (stopped) {
+            region.done(new ClosedChannelException());
+            return;
+        }
+
+        long count = region.count();
+        outQueue.addLast(region);
+        addPendingOutboundBytes(count);
+        updateWritability();
+    }
+
+    @Override
+    public void flush() {
+        if (!inEventLoop()) {
+            source.execute(this::flush);
+            return;
+        }
+
+        // OP_WRITE가 설정되어 있으면 socket이 writable이 될 때 전송된다. 등록 전이면 등록이 끝난 후에 전송된다.
+        // 이어서 write할 차례가 예약되어 있으면 그 때 전송된다.
+        if (stopped || writeInterest || writeTurnScheduled || (selectionKey == null))
+            return;
+
+        try {
+            // 우선 직접 write해 보고 socket buffer가 가득 찼을 때만 OP_WRITE를 설정한다.
+            // 전송 중에 onWritabilityChanged()에서 write()한 데이터가 있으면 계속 전송한다. 한 번도 전송하지 못했으면 그만둔다.
+            long written;
+            do {
+                written = bytesWritten;
+                handlerWrite();
+            } while (!stopped && !writeInterest && !writeTurnScheduled && (pendingOutboundBytes > 0) && (bytesWritten > written));
+        } catch (IOException e) {
+            onSignalError(e);
+        }
     }
 
     @Override
     public void stop() {
-        if (!disposable.isDisposed()) {
-            disposable.dispose(); // subject의 동작을 중지시킨다.
+        if (!inEventLoop()) {
+            source.execute(this::stop);
+            return;
+        }
+
+        if (!stopped) {
+            stopped = true;
+            if (disposable != null)
+                disposable.dispose(); // subject의 동작을 중지시킨다.
             clear();
+            handler.onStop(this);
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * start() 전에는 담당할 selector thread가 정해지지 않았으므로 호출할 수 없다.
+     */
+    @Override
+    public Timeout schedule(long delayMillis, Runnable task) {
+        SignalSource source = this.source;
+        if (source == null)
+            throw new IllegalStateException("channel is not started");
+        return source.schedule(delayMillis, task);
+    }
+
+    /**
+     * 지정한 시간 동안 read나 write가 없으면 handler의 onIdle()이 호출되도록 한다. start() 전에 지정해야 한다.
+     *
+     * @param readerIdleMillis read가 없는 시간. (ms) 0이면 감시하지 않는다.
+     * @param writerIdleMillis write가 없는 시간. (ms) 0이면 감시하지 않는다.
+     * @param allIdleMillis read와 write가 모두 없는 시간. (ms) 0이면 감시하지 않는다.
+     */
+    public void idleTimeouts(long readerIdleMillis, long writerIdleMillis, long allIdleMillis) {
+        this.readerIdleMillis = readerIdleMillis;
+        this.writerIdleMillis = writerIdleMillis;
+        this.allIdleMillis = allIdleMillis;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !stopped && channel.isOpen();
+    }
+
     @Override
     public SelectableChannel channel() {
         return channel;
@@ -48,102 +290,449 @@ public class TcpChannel implements Channel, Selectable {
     @Override
     public void selectionKey(SelectionKey key) {
         selectionKey = key;
+
+        // selector thread에서 등록이 끝난 직후에 호출되므로 여기서부터 channel의 모든 처리는 selector thread에서 이루어진다.
+        handler.onStart(this); // socket의 준비가 끝났으므로 onStart() 호출.
+        startIdleTimers();
+        flushIfPending();
     }
 
+    /**
+     * channel의 handler를 지정한다. 여러 handler를 연결하려면 HandlerChain을 지정한다.
+     *
+     * @param handler channel의 이벤트를 처리할 handler.
+     */
     public void handler(Handler handler) {
         this.handler = handler;
     }
 
-    void start(SignalSource source) {
-        Observer<Integer> observer = new Observer<Integer>() {
-            @Override
-            public void onSubscribe(@NonNull Disposable d) {
-                disposable = d;
+    @Override
+    public Handler handler() {
+        return handler;
+    }
 
-                try {
-                    channel.configureBlocking(false);
-                    source.register(TcpChannel.this, SelectionKey.OP_READ, subject);
+    @Override
+    public boolean isWritable() {
+        return writable.get();
+    }
 
-                    handler.onStart(TcpChannel.this); // socket의 준비가 끝났으므로 onStart() 호출.
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
-            }
+    /**
+     * {@inheritDoc}
+     * 다른 thread에서 write()되어 아직 selector thread가 처리하지 않은 데이터도 포함된다.
+     */
+    @Override
+    public long pendingOutboundBytes() {
+        return pendingOutboundBytes + queuedOutboundBytes.get();
+    }
 
-            @Override
-            public void onNext(@NonNull Integer signal) {
-                System.out.format("%s\t: signal - %x\n", Thread.currentThread().getName(), signal);
-                try {
-                    // readable signal
-                    if ((signal & SelectionKey.OP_READ) > 0)
-                        handlerRead();
-
-                    // writable signal
-                    if ((signal & SelectionKey.OP_WRITE) > 0)
-                        handlerWrite();
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
-            }
+    /**
+     * writability를 결정하는 전송 대기 byte 수의 기준을 지정한다.
+     *
+     * @param low 전송 대기 byte 수가 이 값보다 작아지면 다시 writable이 된다.
+     * @param high 전송 대기 byte 수가 이 값보다 커지면 writable이 false가 된다.
+     */
+    public void writeBufferWaterMark(int low, int high) {
+        if ((low < 0) || (low > high))
+            throw new IllegalArgumentException("invalid water marks: low=" + low + ", high=" + high);
+        this.lowWaterMark = low;
+        this.highWaterMark = high;
+    }
 
-            @Override
-            public void onError(@NonNull Throwable e) {
-                System.out.println("TcpChannel onError()");
-                handler.onError(TcpChannel.this, e);
-                clear();
-            }
+    /**
+     * socket에서 읽을 때 준비할 buffer 크기의 범위를 지정한다. 기본값은 64, 1024, 64KB이다.
+     * 최근 read 크기에 따라서 minimum과 maximum 사이에서 늘리거나 줄인다. start() 전에 지정해야 한다.
+     *
+     * @param minimum 준비할 크기의 하한.
+     * @param initial 처음 read에 준비할 크기.
+     * @param maximum 준비할 크기의 상한.
+     */
+    public void adaptiveReadSize(int minimum, int initial, int maximum) {
+        receiveSizePredictor = new ReceiveSizePredictor(minimum, initial, maximum);
+        if (inBuffer.writableBytes() != receiveSizePredictor.nextSize())
+            inBuffer.resize(receiveSizePredictor.nextSize());
+    }
 
-            @Override
-            public void onComplete() {
-                System.out.println("TcpChannel onComplete()");
-                handler.onStop(TcpChannel.this);
-                clear();
-            }
-        };
+    /**
+     * selector thread가 이 channel을 한 번 처리할 때 read/write할 최대 byte 수를 지정한다. 기본값은 256KB, 256KB이다.
+     * 다 쓰고도 읽을 데이터나 전송할 데이터가 남았으면 같은 thread의 다른 channel들이 차례를 마친 후에 이어서 처리된다.
+     * read/write 한 번은 나누지 않으므로 budget을 조금 넘을 수 있다. 0이면 제한하지 않는다. start() 전에 지정해야 한다.
+     *
+     * @param maxReadBytes 한 번의 차례에 read할 최대 byte 수.
+     * @param maxWriteBytes 한 번의 차례에 write할 최대 byte 수.
+     */
+    public void ioBudget(int maxReadBytes, int maxWriteBytes) {
+        if ((maxReadBytes < 0) || (maxWriteBytes < 0))
+            throw new IllegalArgumentException("invalid budget: read=" + maxReadBytes + ", write=" + maxWriteBytes);
+        this.maxReadBytesPerTurn = maxReadBytes;
+        this.maxWriteBytesPerTurn = maxWriteBytes;
+    }
+
+    /**
+     * 현재 thread에서 이 channel을 직접 처리할 수 있는지 확인한다. start() 이전에는 아직 다른 thread와 공유되지 않으므로 true이다.
+     *
+     * @return channel이 등록된 SignalSource의 thread이거나 start() 이전이면 true.
+     */
+    boolean inEventLoop() {
+        SignalSource source = this.source;
+        return (source == null) || (SignalSource.current() == source);
+    }
 
-        subject.subscribe(observer);
+    /**
+     * 이 channel을 담당하는 SignalSource를 반환한다. start() 이전에는 null이다.
+     *
+     * @return channel이 등록된 SignalSource.
+     */
+    SignalSource signalSource() {
+        return source;
+    }
+
+    /**
+     * true이면 selector thread가 onSignal()을 직접 호출하고, false이면 PublishSubject를 통해서 이벤트를 받는다.
+     * start() 전에 지정해야 한다.
+     *
+     * @param directDispatch 직접 호출 여부. 기본값은 true.
+     */
+    void directDispatch(boolean directDispatch) {
+        this.directDispatch = directDispatch;
+    }
+
+    /**
+     * channel의 I/O 통계를 metrics에 누적한다. start() 전에 지정해야 한다.
+     *
+     * @param metrics 통계를 누적할 TcpMetrics. null이면 통계를 남기지 않는다.
+     */
+    void metrics(TcpMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    void start(SignalSource source) {
+        this.source = source;
+
+        try {
+            channel.configureBlocking(false);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        if (directDispatch) {
+            source.register(this, SelectionKey.OP_READ);
+        } else {
+            PublishSubject<Integer> subject = PublishSubject.create();
+            disposable = subject.subscribe(this::onSignal, this::onSignalError, this::stop);
+            source.register(this, SelectionKey.OP_READ, subject);
+        }
+        // handler.onStart()는 등록이 끝난 후에 selectionKey()에서 호출된다.
+    }
+
+    @Override
+    public void onSignal(int signal) throws IOException {
+        // readable signal. 이어서 read할 차례가 예약되어 있으면 그 때 읽는다.
+        if (((signal & SelectionKey.OP_READ) > 0) && !readTurnScheduled)
+            handlerRead();
+
+        // writable signal
+        if (!stopped && ((signal & SelectionKey.OP_WRITE) > 0)) {
+            handlerWrite();
+            flushIfPending(); // onWritabilityChanged()에서 write()한 데이터를 전송한다.
+        }
+    }
+
+    @Override
+    public void onSignalError(Throwable e) {
+        if (!stopped) {
+            stopped = true;
+            if (disposable != null)
+                disposable.dispose();
+            handler.onError(this, e);
+            clear();
+        }
     }
 
     private void handlerRead() throws IOException {
+        ChannelReadEvent readEvent = new ChannelReadEvent();
+        readEvent.begin();
+        long totalRead = 0;
+        int readCalls = 0;
+        boolean eof = false;
+        boolean exhausted = false;
         while (true) {
-            int read = channel.read(inBuffer.byteBufferForWrite());
+            // 현재 write buffer와 다음 chunk에 한 번에 읽어들인다. (scattering read)
+            int count = inBuffer.byteBuffersForWrite(receiveSizePredictor.nextSize());
+            ByteBuffer[] buffers = inBuffer.byteBuffers();
+            long requested = remaining(buffers, count);
+            long read = channel.read(buffers, 0, count);
+            readCalls++;
+            if (metrics != null) {
+                metrics.readCalls.increment();
+                if (read > 0)
+                    metrics.bytesRead.add(read);
+            }
             if (read < 0) {
-                stop();
+                eof = true; // 이미 읽은 데이터를 handler로 전달한 후에 stop한다.
                 break;
             } else if (read > 0) {
-                if (!inBuffer.advanceWritePosition(read)) // buffer not changed.
+                inBuffer.advanceWritePosition((int) read);
+                receiveSizePredictor.record(read);
+                totalRead += read;
+                if (idleTimers.length > 0)
+                    lastReadTime = System.nanoTime();
+                if (read < requested) // socket에 더 읽을 데이터가 없다.
                     break; // read stop
+                if ((maxReadBytesPerTurn > 0) && (totalRead >= maxReadBytesPerTurn)) {
+                    exhausted = true; // 나머지는 다른 channel들의 차례가 끝난 후에 읽는다.
+                    break;
+                }
             } else {
                 break;
             }
         }
 
+        readEvent.end();
+        if (readEvent.shouldCommit()) {
+            readEvent.channelId = id;
+            readEvent.bytes = totalRead;
+            readEvent.readCalls = readCalls;
+            readEvent.eof = eof;
+            readEvent.commit();
+        }
+
         if (inBuffer.readable()) {
+            HandlerEvent handlerEvent = new HandlerEvent();
+            long readable = handlerEvent.isEnabled() ? inBuffer.size() : 0;
+            handlerEvent.begin();
             handler.onInbound(this, inBuffer); // socket 읽어온 데이터가 있으면 handler 호출.
+            handlerEvent.end();
+            if (handlerEvent.shouldCommit()) {
+                handlerEvent.channelId = id;
+                handlerEvent.callback = "onInbound";
+                handlerEvent.bytes = readable;
+                handlerEvent.commit();
+            }
+            if (stopped) // handler가 onInbound()에서 stop()했다. inBuffer는 이미 release되었다.
+                return;
             inBuffer.unmark(); // always unmark.
+            flushIfPending(); // onInbound()에서 write()한 데이터를 한 번에 전송한다.
+        }
+
+        if (exhausted && !stopped) {
+            readTurnScheduled = true;
+            source.execute(readTurn); // 이번 cycle에 signal을 받은 channel들이 모두 처리된 후에 실행된다.
         }
+
+        // 다 읽었는데 예측보다 훨씬 큰 chunk를 잡고 있으면 줄인다. 작은 read만 오가는 channel이 큰 chunk를 붙잡고 있지 않게 된다.
+        int nextSize = receiveSizePredictor.nextSize();
+        if (!stopped && !inBuffer.readable() && (inBuffer.writableBytes() >= (nextSize << 1)))
+            inBuffer.resize(nextSize);
+
+        if (eof)
+            stop();
     }
 
     private void handlerWrite() throws IOException {
-        if (outBuffer.readable())
-            handler.onOutbound(this, outBuffer);
+        ChannelWriteEvent writeEvent = new ChannelWriteEvent();
+        writeEvent.begin();
+        long written = bytesWritten;
+        long limit = (maxWriteBytesPerTurn > 0) ? written + maxWriteBytesPerTurn : Long.MAX_VALUE;
+        boolean drained = writeOutBuffer(limit);
 
-        int writable = outBuffer.readableBytes();
-        while (writable > 0) { // writable 데이터가 있으면 계속한다.
-            int written = channel.write(outBuffer.byteBufferForRead());
-            if (written > 0)
-                outBuffer.advanceReadPosition(written);
+        // outBuffer를 모두 전송했으면 queue에 대기중인 FileRegion과 Buffer를 순서대로 전송한다.
+        while (drained && !outQueue.isEmpty() && (bytesWritten < limit)) {
+            Object next = outQueue.pollFirst();
+            if (next instanceof FileRegion) {
+                FileRegion region = (FileRegion) next;
+                long transferred = region.transferred();
+                try {
+                    drained = region.transferTo(channel, limit - bytesWritten);
+                } catch (IOException e) {
+                    region.done(e);
+                    throw e;
+                } finally {
+                    bytesWritten += region.transferred() - transferred;
+                    if (metrics != null) {
+                        metrics.writeCalls.increment();
+                        metrics.bytesWritten.add(region.transferred() - transferred);
+                    }
+                    addPendingOutboundBytes(transferred - region.transferred());
+                    if ((idleTimers.length > 0) && (region.transferred() > transferred))
+                        lastWriteTime = System.nanoTime();
+                }
 
-            if (written < writable) { // 요청한만큼 write를 하지못했으면
-                break; // 중단 시킨다. write가 가능할 때 즉시 OP_WRITE 신호가 올 것이다.
-            } else if (written == writable) { // 요청한 데이터 모두 write를 했으면
-                writable = outBuffer.readableBytes(); // writable 데이터가 더 있는 지 체크.
+                if (drained)
+                    region.done(null);
+                else
+                    outQueue.addFirst(region); // 남은 영역은 다음 OP_WRITE에서 계속 전송한다.
+            } else {
+                outBuffer.release();
+                outBuffer = (Buffer) next;
+                drained = writeOutBuffer(limit);
+            }
+        }
+
+        // budget을 다 썼는데 남은 데이터가 있으면 OP_WRITE를 기다리지 않고 다른 channel들의 차례가 끝난 후에 이어서 전송한다.
+        boolean exhausted = (bytesWritten >= limit) && (pendingOutboundBytes > 0);
+        boolean waitWritable = !drained && !exhausted;
+        if (waitWritable != writeInterest) {
+            // socket buffer가 가득 찼을 때만 OP_WRITE를 설정하고, 더 이상 write할 데이터가 없으면 OP_WRITE 끄기.
+            writeInterest = waitWritable;
+            if (writeInterest)
+                selectionKey.interestOps(selectionKey.interestOps() | SelectionKey.OP_WRITE);
+            else
+                selectionKey.interestOps(selectionKey.interestOps() & ~SelectionKey.OP_WRITE);
+        }
+
+        writeEvent.end();
+        if (writeEvent.shouldCommit()) {
+            writeEvent.channelId = id;
+            writeEvent.bytes = bytesWritten - written;
+            writeEvent.drained = drained;
+            writeEvent.pendingBytes = pendingOutboundBytes;
+            writeEvent.commit();
+        }
+
+        if (exhausted && !writeTurnScheduled) {
+            writeTurnScheduled = true;
+            source.execute(writeTurn);
+        }
+
+        updateWritability();
+    }
+
+    /**
+     * outBuffer의 데이터를 socket이 받아주는 만큼 write한다. bytesWritten이 limit에 도달하면 중단한다.
+     *
+     * @param limit 이번 차례의 write를 중단할 bytesWritten 값.
+     * @return outBuffer를 모두 write했으면 true, 남은 데이터가 있으면 false.
+     */
+    private boolean writeOutBuffer(long limit) throws IOException {
+        if (outBuffer.readable()) {
+            int size = outBuffer.size();
+            inOnOutbound = true;
+            try {
+                handler.onOutbound(this, outBuffer);
+            } finally {
+                inOnOutbound = false;
+            }
+            addPendingOutboundBytes(outBuffer.size() - size); // handler가 내용을 바꿨을 수 있다.
+        }
+
+        while (outBuffer.readable() && (bytesWritten < limit)) { // writable 데이터가 있으면 계속한다.
+            // 읽을 수 있는 모든 chunk를 한 번에 write한다. (gathering write)
+            int count = outBuffer.byteBuffersForRead();
+            ByteBuffer[] buffers = outBuffer.byteBuffers();
+            long writable = remaining(buffers, count);
+            long written = channel.write(buffers, 0, count);
+            bytesWritten += written;
+            if (metrics != null) {
+                metrics.writeCalls.increment();
+                metrics.bytesWritten.add(written);
+                if (written < writable)
+                    metrics.partialWrites.increment();
             }
+            if (written > 0) {
+                outBuffer.advanceReadPosition((int) written);
+                addPendingOutboundBytes(-written);
+                if (idleTimers.length > 0)
+                    lastWriteTime = System.nanoTime();
+            }
+
+            if (written < writable) // 요청한만큼 write를 하지못했으면
+                break; // 중단 시킨다. write가 가능할 때 즉시 OP_WRITE 신호가 올 것이다.
         }
 
-        // 더 이상 write할 데이터가 없으면 OP_WRITE 끄기.
-        if (writable <= 0)
-            selectionKey.interestOps(selectionKey.interestOps() & ~SelectionKey.OP_WRITE);
+        return !outBuffer.readable();
+    }
+
+    private void startIdleTimers() {
+        lastReadTime = lastWriteTime = System.nanoTime();
+
+        int count = ((readerIdleMillis > 0) ? 1 : 0) + ((writerIdleMillis > 0) ? 1 : 0) + ((allIdleMillis > 0) ? 1 : 0);
+        idleTimers = new IdleTimer[count];
+        int inx = 0;
+        if (readerIdleMillis > 0)
+            idleTimers[inx++] = new IdleTimer(IdleState.READER_IDLE, readerIdleMillis);
+        if (writerIdleMillis > 0)
+            idleTimers[inx++] = new IdleTimer(IdleState.WRITER_IDLE, writerIdleMillis);
+        if (allIdleMillis > 0)
+            idleTimers[inx] = new IdleTimer(IdleState.ALL_IDLE, allIdleMillis);
+
+        for (IdleTimer timer : idleTimers)
+            timer.start();
+    }
+
+    /**
+     * 전송 대기중인 데이터가 있으면 flush()한다. handler 호출이 끝난 후에 자동으로 호출된다.
+     */
+    private void flushIfPending() {
+        if (pendingOutboundBytes > 0)
+            flush();
+    }
+
+    /**
+     * 전송 대기중인 byte 수를 변경한다. writability는 write 처리가 끝난 후에 updateWritability()에서 갱신된다.
+     *
+     * @param delta 변경할 byte 수. 전송되었으면 음수.
+     */
+    private void addPendingOutboundBytes(long delta) {
+        pendingOutboundBytes += delta;
+        if (metrics != null)
+            metrics.pendingOutboundBytes.add(delta);
+    }
+
+    /**
+     * 다른 thread에서 write()되어 task queue에서 기다리는 byte 수를 변경한다.
+     *
+     * @param delta 변경할 byte 수. selector thread가 처리했으면 음수.
+     */
+    private void addQueuedOutboundBytes(long delta) {
+        queuedOutboundBytes.addAndGet(delta);
+        if (metrics != null)
+            metrics.pendingOutboundBytes.add(delta);
+    }
+
+    /**
+     * 전송 대기중인 byte 수가 water mark를 넘나들었으면 writability를 바꾸고 handler에게 알린다. 어느 thread에서나 호출할 수 있다.
+     * handler가 onWritabilityChanged()에서 다시 write()할 수 있으므로 outBuffer를 전송하는 도중에는 호출하지 않는다.
+     */
+    private void updateWritability() {
+        boolean changed = false;
+        while (true) { // 다른 thread가 그 사이에 대기 byte 수를 바꿨을 수 있으므로 바꾼 후에 다시 확인한다.
+            long pending = pendingOutboundBytes();
+            boolean current = writable.get();
+            if (current ? (pending <= highWaterMark) : (pending >= lowWaterMark))
+                break;
+            if (writable.compareAndSet(current, !current))
+                changed = true;
+        }
+
+        if (!changed)
+            return;
+        if (inEventLoop()) {
+            notifyWritability();
+        } else {
+            source.execute(() -> {
+                notifyWritability();
+                flushIfPending(); // onWritabilityChanged()에서 write()한 데이터를 전송한다.
+            });
+        }
+    }
+
+    /**
+     * 마지막으로 알린 것과 writability가 다르면 handler에게 알린다. 다른 thread에서 바꾼 writability도 selector thread에서 알리므로
+     * 알림이 늦게 도착하더라도 handler는 항상 현재 상태를 마지막으로 받는다.
+     */
+    private void notifyWritability() {
+        boolean current = writable.get();
+        if (current != notifiedWritable) {
+            notifiedWritable = current;
+            handler.onWritabilityChanged(this, current);
+        }
+    }
+
+    private static long remaining(ByteBuffer[] buffers, int count) {
+        long remaining = 0;
+        for (int inx = 0; inx < count; inx++)
+            remaining += buffers[inx].remaining();
+        return remaining;
     }
 
     private void clear() {
@@ -152,5 +741,25 @@ public class TcpChannel implements Channel, Selectable {
         } catch (Exception e) {
             e.printStackTrace();
         }
+
+        // socket이 닫혔으므로 buffer의 chunk들을 allocator로 반환한다.
+        inBuffer.release();
+        outBuffer.release();
+
+        // 전송되지 못한 FileRegion은 실패로 완료시킨다.
+        for (Object pending : outQueue) {
+            if (pending instanceof FileRegion)
+                ((FileRegion) pending).done(new ClosedChannelException());
+            else
+                ((Buffer) pending).release();
+        }
+        outQueue.clear();
+        addPendingOutboundBytes(-pendingOutboundBytes);
+
+        if (metrics != null)
+            metrics.closedConnections.increment();
+
+        for (IdleTimer timer : idleTimers)
+            timer.cancel();
     }
 }
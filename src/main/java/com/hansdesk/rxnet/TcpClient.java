@@ -0,0 +1,268 @@
+package com.hansdesk.rxnet;
+
+import com.hansdesk.rxnet.util.Handlers;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * 외부로 TCP connection을 생성한다. connect는 OP_CONNECT를 통해서 SignalSource에서 non-blocking으로 처리되므로
+ * connection마다 thread가 필요하지 않다. 연결된 connection은 TcpServer가 accept한 것과 같은 TcpChannel로 처리된다.
+ * 연결을 재사용하려면 newPool()로 ChannelPool을 생성한다.
+ */
+public class TcpClient {
+    /**
+     * 연결중인 socket 하나. 연결이 끝나면 같은 SignalSource에 TcpChannel로 다시 등록된다.
+     */
+    private class Connector implements Selectable {
+        private final SocketChannel channel;
+        private final SignalSource source;
+        private final CompletableFuture<Channel> future;
+        private SelectionKey selectionKey;
+        private Timeout timeout;
+
+        Connector(SocketChannel channel, SignalSource source, CompletableFuture<Channel> future) {
+            this.channel = channel;
+            this.source = source;
+            this.future = future;
+        }
+
+        @Override
+        public SelectableChannel channel() {
+            return channel;
+        }
+
+        @Override
+        public void selectionKey(SelectionKey key) {
+            selectionKey = key;
+            if (connectTimeoutMillis > 0)
+                timeout = source.schedule(connectTimeoutMillis, () -> onSignalError(new ConnectException("connect timed out")));
+        }
+
+        @Override
+        public void onSignal(int ops) throws IOException {
+            if (channel.finishConnect()) {
+                if (timeout != null)
+                    timeout.cancel();
+                selectionKey.interestOps(0); // 같은 key를 TcpChannel이 OP_READ로 넘겨받는다.
+                future.complete(startChannel(channel, source));
+            }
+        }
+
+        @Override
+        public void onSignalError(Throwable e) {
+            if (future.isDone()) // timeout과 연결 실패가 겹쳤다.
+                return;
+            if (timeout != null)
+                timeout.cancel();
+            close(channel);
+            future.completeExceptionally(e);
+        }
+    }
+
+    private SignalSourceGroup group = SignalSources.group();
+    private BufferAllocator allocator = BufferAllocators.pooled();
+    private Supplier<? extends Handler> channelHandlerFactory = () -> Handlers.EMPTY_CHANNEL_HANDLER;
+    private boolean directDispatch = true;
+    private long connectTimeoutMillis = 30_000;
+    private int lowWaterMark = 32 * 1024;
+    private int highWaterMark = 64 * 1024;
+    private long readerIdleMillis = 0;
+    private long writerIdleMillis = 0;
+    private long allIdleMillis = 0;
+    private int minReadSize = 64;
+    private int initialReadSize = 1024;
+    private int maxReadSize = 64 * 1024;
+    private int maxReadBytesPerTurn = 256 * 1024;
+    private int maxWriteBytesPerTurn = 256 * 1024;
+
+    TcpClient() {
+    }
+
+    /**
+     * connection을 처리할 SignalSourceGroup을 지정한다. 지정하지 않으면 SignalSources.group()을 사용한다.
+     *
+     * @param group connection들이 분산될 SignalSourceGroup.
+     * @return this
+     */
+    public TcpClient signalSourceGroup(SignalSourceGroup group) {
+        this.group = group;
+        return this;
+    }
+
+    public TcpClient allocator(BufferAllocator allocator) {
+        this.allocator = allocator;
+        return this;
+    }
+
+    /**
+     * 모든 channel이 공유할 handler를 지정한다. handler는 여러 SignalSource thread에서 동시에 호출될 수 있다.
+     *
+     * @param handler channel들이 공유할 handler.
+     * @return this
+     */
+    public TcpClient channelHandler(Handler handler) {
+        this.channelHandlerFactory = () -> handler;
+        return this;
+    }
+
+    /**
+     * connection이 생성될 때마다 factory로부터 새로운 handler를 받아서 사용한다.
+     *
+     * @param factory channel마다 호출되어 handler를 생성할 factory.
+     * @return this
+     */
+    public TcpClient channelHandlerFactory(Supplier<? extends Handler> factory) {
+        this.channelHandlerFactory = factory;
+        return this;
+    }
+
+    public TcpClient writeBufferWaterMark(int low, int high) {
+        if ((low < 0) || (low > high))
+            throw new IllegalArgumentException("invalid water marks: low=" + low + ", high=" + high);
+        this.lowWaterMark = low;
+        this.highWaterMark = high;
+        return this;
+    }
+
+    /**
+     * channel마다 지정한 시간 동안 read나 write가 없으면 handler의 onIdle()이 호출되도록 한다. 0이면 감시하지 않는다.
+     * 응답이 없는 peer를 정리하려면 onIdle()에서 channel.stop()을 호출한다.
+     *
+     * @param readerIdleMillis read가 없는 시간. (ms)
+     * @param writerIdleMillis write가 없는 시간. (ms)
+     * @param allIdleMillis read와 write가 모두 없는 시간. (ms)
+     * @return this
+     */
+    public TcpClient idleTimeouts(long readerIdleMillis, long writerIdleMillis, long allIdleMillis) {
+        this.readerIdleMillis = readerIdleMillis;
+        this.writerIdleMillis = writerIdleMillis;
+        this.allIdleMillis = allIdleMillis;
+        return this;
+    }
+
+    /**
+     * channel마다 socket에서 읽을 때 준비할 buffer 크기의 범위를 지정한다. 기본값은 64, 1024, 64KB이다.
+     * channel은 최근 read 크기에 따라서 minimum과 maximum 사이에서 크기를 늘리거나 줄인다.
+     * 작은 메시지만 오가는 connection이 많으면 minimum과 initial을 줄이고, 대용량 전송이 많으면 maximum을 늘린다.
+     *
+     * @param minimum 준비할 크기의 하한.
+     * @param initial 처음 read에 준비할 크기.
+     * @param maximum 준비할 크기의 상한.
+     * @return this
+     */
+    public TcpClient adaptiveReadSize(int minimum, int initial, int maximum) {
+        if ((minimum <= 0) || (initial < minimum) || (maximum < initial))
+            throw new IllegalArgumentException("invalid sizes: minimum=" + minimum + ", initial=" + initial + ", maximum=" + maximum);
+        this.minReadSize = minimum;
+        this.initialReadSize = initial;
+        this.maxReadSize = maximum;
+        return this;
+    }
+
+    /**
+     * selector thread가 channel 하나를 한 번 처리할 때 read/write할 최대 byte 수를 지정한다. 기본값은 256KB, 256KB이다.
+     * 대용량 전송 중인 channel이 selector thread를 오래 점유하지 않도록 남은 일은 다른 channel들의 차례가 끝난 후에 이어서 처리한다.
+     * 값이 작을수록 작은 요청들의 tail latency는 줄어들지만 대용량 전송의 처리량은 조금 줄어든다. 0이면 제한하지 않는다.
+     *
+     * @param maxReadBytes 한 번의 차례에 read할 최대 byte 수.
+     * @param maxWriteBytes 한 번의 차례에 write할 최대 byte 수.
+     * @return this
+     */
+    public TcpClient ioBudget(int maxReadBytes, int maxWriteBytes) {
+        if ((maxReadBytes < 0) || (maxWriteBytes < 0))
+            throw new IllegalArgumentException("invalid budget: read=" + maxReadBytes + ", write=" + maxWriteBytes);
+        this.maxReadBytesPerTurn = maxReadBytes;
+        this.maxWriteBytesPerTurn = maxWriteBytes;
+        return this;
+    }
+
+    /**
+     * TcpServer.directDispatch()와 같다.
+     *
+     * @param directDispatch 직접 호출 여부.
+     * @return this
+     */
+    public TcpClient directDispatch(boolean directDispatch) {
+        this.directDispatch = directDispatch;
+        return this;
+    }
+
+    /**
+     * 연결을 기다릴 최대 시간을 지정한다. 시간이 지나면 connect()의 future가 ConnectException으로 완료된다. 기본값은 30초이다.
+     *
+     * @param millis 최대 연결 시간. (ms) 0이면 제한하지 않는다.
+     * @return this
+     */
+    public TcpClient connectTimeout(long millis) {
+        this.connectTimeoutMillis = millis;
+        return this;
+    }
+
+    /**
+     * 이 client로 connection을 생성하는 ChannelPool을 생성한다.
+     *
+     * @return 새 ChannelPool.
+     */
+    public ChannelPool newPool() {
+        return new ChannelPool(this);
+    }
+
+    public CompletableFuture<Channel> connect(String hostname, int port) {
+        return connect(new InetSocketAddress(hostname, port));
+    }
+
+    /**
+     * address로 연결한다. 호출한 thread는 block되지 않는다.
+     * 연결이 되면 channel의 handler가 지정되고 onStart()가 호출된다. future는 onStart() 호출과 관계없이 완료될 수 있으며,
+     * 완료 즉시 write()할 수 있다.
+     *
+     * @param address 연결할 주소.
+     * @return 연결된 channel로 완료되는 future. 연결에 실패하면 예외로 완료된다.
+     */
+    public CompletableFuture<Channel> connect(InetSocketAddress address) {
+        CompletableFuture<Channel> future = new CompletableFuture<>();
+        SocketChannel channel = null;
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+
+            SignalSource source = group.next(); // channel은 종료될 때까지 선택된 SignalSource에서만 처리된다.
+            if (channel.connect(address))
+                future.complete(startChannel(channel, source)); // 즉시 연결되었다. (local 연결 등)
+            else
+                source.register(new Connector(channel, source, future), SelectionKey.OP_CONNECT);
+        } catch (IOException | RuntimeException e) {
+            if (channel != null)
+                close(channel);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private TcpChannel startChannel(SocketChannel socketChannel, SignalSource source) throws IOException {
+        TcpChannel newChannel = Channels.tcpChannelFrom(socketChannel, allocator);
+        newChannel.handler(channelHandlerFactory.get());
+        newChannel.directDispatch(directDispatch);
+        newChannel.writeBufferWaterMark(lowWaterMark, highWaterMark);
+        newChannel.idleTimeouts(readerIdleMillis, writerIdleMillis, allIdleMillis);
+        newChannel.adaptiveReadSize(minReadSize, initialReadSize, maxReadSize);
+        newChannel.ioBudget(maxReadBytesPerTurn, maxWriteBytesPerTurn);
+        newChannel.start(source);
+        return newChannel;
+    }
+
+    private static void close(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
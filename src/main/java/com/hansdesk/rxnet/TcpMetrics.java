@@ -0,0 +1,75 @@
+package com.hansdesk.rxnet;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TcpServer에 속한 channel들의 통계를 모은다. 여러 SignalSource thread에서 동시에 갱신되므로
+ * 경합이 적은 LongAdder를 사용한다.
+ */
+public class TcpMetrics implements TcpMetricsMBean {
+    final LongAdder acceptedConnections = new LongAdder();
+    final LongAdder closedConnections = new LongAdder();
+    final LongAdder bytesRead = new LongAdder();
+    final LongAdder bytesWritten = new LongAdder();
+    final LongAdder readCalls = new LongAdder();
+    final LongAdder writeCalls = new LongAdder();
+    final LongAdder partialWrites = new LongAdder();
+    final LongAdder pendingOutboundBytes = new LongAdder();
+
+    @Override
+    public long getAcceptedConnections() {
+        return acceptedConnections.sum();
+    }
+
+    @Override
+    public long getClosedConnections() {
+        return closedConnections.sum();
+    }
+
+    @Override
+    public long getActiveConnections() {
+        return acceptedConnections.sum() - closedConnections.sum();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    /**
+     * socket read system call 횟수. scattering read 한 번이 한 번으로 계산된다.
+     */
+    @Override
+    public long getReadCalls() {
+        return readCalls.sum();
+    }
+
+    /**
+     * socket write system call 횟수. gathering write와 파일 전송을 포함한다.
+     */
+    @Override
+    public long getWriteCalls() {
+        return writeCalls.sum();
+    }
+
+    /**
+     * socket buffer가 가득 차서 요청한 만큼 write하지 못한 횟수.
+     */
+    @Override
+    public long getPartialWrites() {
+        return partialWrites.sum();
+    }
+
+    /**
+     * 모든 channel에서 전송을 기다리는 byte 수의 합.
+     */
+    @Override
+    public long getPendingOutboundBytes() {
+        return pendingOutboundBytes.sum();
+    }
+}
@@ -0,0 +1,16 @@
+package com.hansdesk.rxnet;
+
+/**
+ * TcpServer의 channel들에 대한 통계. JMX로 조회할 수 있다.
+ */
+public interface TcpMetricsMBean {
+    long getAcceptedConnections();
+    long getClosedConnections();
+    long getActiveConnections();
+    long getBytesRead();
+    long getBytesWritten();
+    long getReadCalls();
+    long getWriteCalls();
+    long getPartialWrites();
+    long getPendingOutboundBytes();
+}
@@ -2,33 +2,84 @@ package com.hansdesk.rxnet;
 
 import com.hansdesk.rxnet.util.Handlers;
 import com.hansdesk.rxnet.util.JustFuture;
-import io.reactivex.rxjava3.annotations.NonNull;
-import io.reactivex.rxjava3.core.Observer;
-import io.reactivex.rxjava3.disposables.Disposable;
-import io.reactivex.rxjava3.schedulers.Schedulers;
+import com.hansdesk.rxnet.util.MBeans;
+import io.reactivex.rxjava3.disposables.CompositeDisposable;
 import io.reactivex.rxjava3.subjects.PublishSubject;
 import io.reactivex.rxjava3.subjects.Subject;
 
+import javax.management.ObjectName;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
 
-public class TcpServer implements Server, Selectable {
-    private final SignalSource source = SignalSources.single();
-    private final Subject<Integer> subject = (Subject<Integer>) PublishSubject.<Integer>create().observeOn(Schedulers.computation());
-    private final JustFuture future = new JustFuture();
-    private Disposable disposable;
+public class TcpServer implements Server {
+    /**
+     * listen 중인 ServerSocketChannel 하나. SO_REUSEPORT를 사용하면 여러 개의 listener가 같은 주소에 bind된다.
+     * 각 listener는 acceptor group의 SignalSource 하나에 등록되어 그 thread에서 accept가 처리된다.
+     */
+    private class Listener implements Selectable {
+        private final ServerSocketChannel channel;
+        private SelectionKey selectionKey;
+
+        Listener(ServerSocketChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public SelectableChannel channel() {
+            return channel;
+        }
+
+        @Override
+        public void selectionKey(SelectionKey key) {
+            selectionKey = key;
+        }
+
+        @Override
+        public void onSignal(int ops) {
+            TcpServer.this.onSignal(this, ops);
+        }
+
+        @Override
+        public void onSignalError(Throwable e) {
+            TcpServer.this.onError(e);
+        }
+    }
 
-    private ServerSocketChannel channel;
-    private SelectionKey selectionKey;
+    private final JustFuture future = new JustFuture();
+    private final CompositeDisposable disposables = new CompositeDisposable();
+    private final List<Listener> listeners = new ArrayList<>();
+    private final TcpMetrics metrics = new TcpMetrics();
+    private ObjectName objectName;
 
+    private SignalSourceGroup group = SignalSources.group();
+    private SignalSourceGroup acceptorGroup;
     private String hostname;
     private int port;
+    private int backlog = 0;
+    private int acceptBatch = 64;
+    private int reusePortListeners = 0;
+    private boolean directDispatch = true;
+    private int lowWaterMark = 32 * 1024;
+    private int highWaterMark = 64 * 1024;
+    private long readerIdleMillis = 0;
+    private long writerIdleMillis = 0;
+    private long allIdleMillis = 0;
+    private int minReadSize = 64;
+    private int initialReadSize = 1024;
+    private int maxReadSize = 64 * 1024;
+    private int maxReadBytesPerTurn = 256 * 1024;
+    private int maxWriteBytesPerTurn = 256 * 1024;
+    private BufferAllocator allocator = BufferAllocators.pooled();
     private ServerHandler serverHandler = Handlers.EMPTY_SERVER_HANDLER;
-    private Handler channelHandler = Handlers.EMPTY_CHANNEL_HANDLER;
+    private Supplier<? extends Handler> channelHandlerFactory = () -> Handlers.EMPTY_CHANNEL_HANDLER;
 
     TcpServer() {
     }
@@ -43,34 +94,247 @@ public class TcpServer implements Server, Selectable {
         return this;
     }
 
+    /**
+     * listen socket의 backlog 크기를 지정한다. 0 이하이면 시스템 기본값을 사용한다.
+     *
+     * @param backlog pending connection queue의 최대 크기.
+     * @return this
+     */
+    public TcpServer backlog(int backlog) {
+        this.backlog = backlog;
+        return this;
+    }
+
+    /**
+     * OP_ACCEPT signal 한 번에 accept할 최대 connection 수를 지정한다.
+     * backlog가 비거나 이 수에 도달할 때까지 accept를 반복한다. 기본값은 64이다.
+     *
+     * @param acceptBatch signal 한 번에 accept할 최대 connection 수.
+     * @return this
+     */
+    public TcpServer acceptBatch(int acceptBatch) {
+        if (acceptBatch <= 0)
+            throw new IllegalArgumentException("acceptBatch must be positive: " + acceptBatch);
+        this.acceptBatch = acceptBatch;
+        return this;
+    }
+
+    /**
+     * listener와 accept된 channel들이 등록될 SignalSourceGroup을 지정한다.
+     * 지정하지 않으면 SignalSources.group()을 사용한다.
+     *
+     * @param group 사용할 SignalSourceGroup.
+     * @return this
+     */
+    public TcpServer signalSourceGroup(SignalSourceGroup group) {
+        this.group = group;
+        return this;
+    }
+
+    /**
+     * accept만 담당할 SignalSourceGroup을 지정한다. 지정하면 listener는 I/O를 처리하는 group과 분리된
+     * SignalSource에서 accept를 처리하게 된다. 지정하지 않으면 signalSourceGroup()과 같은 group을 사용한다.
+     *
+     * @param acceptorGroup accept를 담당할 SignalSourceGroup.
+     * @return this
+     */
+    public TcpServer acceptorGroup(SignalSourceGroup acceptorGroup) {
+        this.acceptorGroup = acceptorGroup;
+        return this;
+    }
+
+    /**
+     * SO_REUSEPORT 옵션으로 같은 주소에 bind된 listener를 listeners 개수만큼 연다.
+     * kernel이 들어오는 connection을 listener들에게 분산시키므로 각 listener를 담당하는 acceptor loop에 accept가 분산된다.
+     * SO_REUSEPORT를 지원하지 않는 플랫폼에서는 start()가 실패한다.
+     * port가 0이면 첫 listener가 할당받은 port에 나머지 listener들이 bind된다.
+     *
+     * @param listeners 열 listener의 수.
+     * @return this
+     */
+    public TcpServer reusePort(int listeners) {
+        if (listeners <= 0)
+            throw new IllegalArgumentException("listeners must be positive: " + listeners);
+        this.reusePortListeners = listeners;
+        return this;
+    }
+
+    /**
+     * accept된 channel들이 buffer의 chunk를 할당받을 allocator를 지정한다.
+     * 지정하지 않으면 BufferAllocators.pooled()를 사용한다.
+     * 대용량 전송이 많은 서버는 BufferAllocators.pooledDirect()를 지정해서 socket I/O 시의 복사를 줄일 수 있다.
+     *
+     * @param allocator channel의 buffer들이 사용할 allocator.
+     * @return this
+     */
+    public TcpServer allocator(BufferAllocator allocator) {
+        this.allocator = allocator;
+        return this;
+    }
+
     public TcpServer serverHandler(ServerHandler serverHandler) {
         this.serverHandler = serverHandler;
         return this;
     }
 
+    /**
+     * 모든 channel이 공유할 handler를 지정한다. handler는 여러 SignalSource thread에서 동시에 호출될 수 있다.
+     *
+     * @param handler channel들이 공유할 handler.
+     * @return this
+     */
     public TcpServer channelHandler(Handler handler) {
-        this.channelHandler = handler;
+        this.channelHandlerFactory = () -> handler;
         return this;
     }
 
+    /**
+     * channel이 accept될 때마다 factory로부터 새로운 handler를 받아서 사용한다.
+     * FrameDecoder처럼 channel마다 상태를 가지는 handler는 이 메소드로 지정해야 한다.
+     * 여러 handler를 연결할 때는 channel마다 새로운 HandlerChain을 생성한다. 예: {@code () -> HandlerChain.of(new LineFrameDecoder(1024), handler)}
+     *
+     * @param factory channel마다 호출되어 handler를 생성할 factory.
+     * @return this
+     */
+    public TcpServer channelHandlerFactory(Supplier<? extends Handler> factory) {
+        this.channelHandlerFactory = factory;
+        return this;
+    }
+
+    /**
+     * channel마다 전송 대기중인 데이터의 water mark를 지정한다. 기본값은 32KB, 64KB이다.
+     * 전송 대기 byte 수가 high를 넘으면 Channel.isWritable()이 false가 되고 low 아래로 내려가면 다시 true가 된다.
+     *
+     * @param low low water mark.
+     * @param high high water mark.
+     * @return this
+     */
+    public TcpServer writeBufferWaterMark(int low, int high) {
+        if ((low < 0) || (low > high))
+            throw new IllegalArgumentException("invalid water marks: low=" + low + ", high=" + high);
+        this.lowWaterMark = low;
+        this.highWaterMark = high;
+        return this;
+    }
+
+    /**
+     * channel마다 지정한 시간 동안 read나 write가 없으면 handler의 onIdle()이 호출되도록 한다. 0이면 감시하지 않는다.
+     * 응답이 없는 peer를 정리하려면 onIdle()에서 channel.stop()을 호출한다.
+     *
+     * @param readerIdleMillis read가 없는 시간. (ms)
+     * @param writerIdleMillis write가 없는 시간. (ms)
+     * @param allIdleMillis read와 write가 모두 없는 시간. (ms)
+     * @return this
+     */
+    public TcpServer idleTimeouts(long readerIdleMillis, long writerIdleMillis, long allIdleMillis) {
+        this.readerIdleMillis = readerIdleMillis;
+        this.writerIdleMillis = writerIdleMillis;
+        this.allIdleMillis = allIdleMillis;
+        return this;
+    }
+
+    /**
+     * channel마다 socket에서 읽을 때 준비할 buffer 크기의 범위를 지정한다. 기본값은 64, 1024, 64KB이다.
+     * channel은 최근 read 크기에 따라서 minimum과 maximum 사이에서 크기를 늘리거나 줄인다.
+     * 작은 메시지만 오가는 connection이 많으면 minimum과 initial을 줄이고, 대용량 전송이 많으면 maximum을 늘린다.
+     *
+     * @param minimum 준비할 크기의 하한.
+     * @param initial 처음 read에 준비할 크기.
+     * @param maximum 준비할 크기의 상한.
+     * @return this
+     */
+    public TcpServer adaptiveReadSize(int minimum, int initial, int maximum) {
+        if ((minimum <= 0) || (initial < minimum) || (maximum < initial))
+            throw new IllegalArgumentException("invalid sizes: minimum=" + minimum + ", initial=" + initial + ", maximum=" + maximum);
+        this.minReadSize = minimum;
+        this.initialReadSize = initial;
+        this.maxReadSize = maximum;
+        return this;
+    }
+
+    /**
+     * selector thread가 channel 하나를 한 번 처리할 때 read/write할 최대 byte 수를 지정한다. 기본값은 256KB, 256KB이다.
+     * 대용량 전송 중인 channel이 selector thread를 오래 점유하지 않도록 남은 일은 다른 channel들의 차례가 끝난 후에 이어서 처리한다.
+     * 값이 작을수록 작은 요청들의 tail latency는 줄어들지만 대용량 전송의 처리량은 조금 줄어든다. 0이면 제한하지 않는다.
+     *
+     * @param maxReadBytes 한 번의 차례에 read할 최대 byte 수.
+     * @param maxWriteBytes 한 번의 차례에 write할 최대 byte 수.
+     * @return this
+     */
+    public TcpServer ioBudget(int maxReadBytes, int maxWriteBytes) {
+        if ((maxReadBytes < 0) || (maxWriteBytes < 0))
+            throw new IllegalArgumentException("invalid budget: read=" + maxReadBytes + ", write=" + maxWriteBytes);
+        this.maxReadBytesPerTurn = maxReadBytes;
+        this.maxWriteBytesPerTurn = maxWriteBytes;
+        return this;
+    }
+
+    /**
+     * true이면 selector thread가 listener와 channel을 직접 호출한다. (기본값)
+     * false이면 이벤트가 각각의 PublishSubject를 통해서 전달된다. 이벤트마다 boxing이 발생하지만 Rx 방식으로 이벤트를 받을 수 있다.
+     *
+     * @param directDispatch 직접 호출 여부.
+     * @return this
+     */
+    public TcpServer directDispatch(boolean directDispatch) {
+        this.directDispatch = directDispatch;
+        return this;
+    }
+
+    /**
+     * 이 서버가 accept한 channel들의 통계를 반환한다. 서버가 실행되는 동안 JMX에도
+     * "com.hansdesk.rxnet:type=TcpServer,name=<host:port>"로 등록된다.
+     *
+     * @return 이 서버의 통계.
+     */
+    public TcpMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * listen 중인 port를 반환한다. port(0)으로 시작했으면 system이 할당한 port이다.
+     *
+     * @return bind된 port. start() 전이면 -1.
+     */
+    public int localPort() {
+        return listeners.isEmpty() ? -1 : listeners.get(0).channel.socket().getLocalPort();
+    }
+
     @Override
     public Server start() {
         InetSocketAddress inetSocketAddress = (hostname == null) ? new InetSocketAddress(port) : new InetSocketAddress(hostname, port);
+        SignalSourceGroup acceptors = (acceptorGroup == null) ? group : acceptorGroup;
+        int listenerCount = Math.max(reusePortListeners, 1);
 
         try {
-            // 가장 먼저 subject 구독을 먼저 시작.
-            disposable = subject.subscribe(this::onSignal, this::onError, this::onComplete);
+            for (int inx = 0; inx < listenerCount; inx++) {
+                // server socket channel을 생성.
+                ServerSocketChannel channel = ServerSocketChannel.open();
+                channel.configureBlocking(false);
+                if (reusePortListeners > 0)
+                    channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
 
-            // server socket channel을 생성.
-            channel = ServerSocketChannel.open();
-            channel.configureBlocking(false);
+                Listener listener = new Listener(channel);
+                listeners.add(listener);
 
-            // accept event를 받을 수 있게 등록한다.
-            source.register(this, SelectionKey.OP_ACCEPT, subject); // source에 자신을 등록.
+                // listen을 시작한다. bind 전에 등록하면 selector가 bind되지 않은 socket을 accept할 수 있다고 알려줄 수 있다.
+                channel.bind(inetSocketAddress, backlog);
+                if (inx == 0) // port 0이면 첫 listener가 받은 port에 나머지 listener들도 bind한다.
+                    inetSocketAddress = new InetSocketAddress(inetSocketAddress.getAddress(), localPort());
 
-            // listen을 시작한다.
-            channel.bind(inetSocketAddress);
+                // accept event를 받을 수 있게 등록한다.
+                if (directDispatch) {
+                    acceptors.next().register(listener, SelectionKey.OP_ACCEPT); // source에 자신을 등록.
+                } else {
+                    // 가장 먼저 subject 구독을 먼저 시작.
+                    Subject<Integer> subject = PublishSubject.create();
+                    disposables.add(subject.subscribe(signal -> onSignal(listener, signal), this::onError, this::onComplete));
+                    acceptors.next().register(listener, SelectionKey.OP_ACCEPT, subject);
+                }
+            }
+            objectName = MBeans.register(metrics, "TcpServer", ((hostname == null) ? "0.0.0.0" : hostname) + ":" + localPort());
         } catch (Exception e) {
+            clear();
             throw new RuntimeException(e);
         }
         return this;
@@ -79,7 +343,7 @@ public class TcpServer implements Server, Selectable {
     @Override
     public void stop() {
         if (isRunning()) {
-            disposable.dispose(); // subject의 동작을 중지시킨다.
+            disposables.dispose(); // subject의 동작을 중지시킨다.
             clear();
         }
     }
@@ -99,26 +363,34 @@ public class TcpServer implements Server, Selectable {
         return future.await(millis);
     }
 
-    @Override
-    public SelectableChannel channel() {
-        return channel;
-    }
-
-    @Override
-    public void selectionKey(SelectionKey key) {
-        selectionKey = key;
-    }
-
-    private void onSignal(Integer signal) {
-        System.out.format("%s\t: signal - %x\n", Thread.currentThread().getName(), signal);
+    /**
+     * listener를 담당하는 acceptor loop에서 호출된다.
+     * backlog가 비거나 acceptBatch에 도달할 때까지 accept를 반복한다.
+     *
+     * @param listener OP_ACCEPT signal을 받은 listener.
+     * @param signal 발생한 signal.
+     */
+    private void onSignal(Listener listener, int signal) {
         try {
-            SocketChannel socketChannel = channel.accept();
-            TcpChannel newChannel = Channels.tcpChannelFrom(socketChannel);
-            newChannel.handler(channelHandler);
+            for (int inx = 0; inx < acceptBatch; inx++) {
+                SocketChannel socketChannel = listener.channel.accept();
+                if (socketChannel == null) // backlog가 비었다.
+                    break;
 
-            serverHandler.onNewChannel(TcpServer.this, newChannel);
+                metrics.acceptedConnections.increment();
+                TcpChannel newChannel = Channels.tcpChannelFrom(socketChannel, allocator);
+                newChannel.metrics(metrics);
+                newChannel.handler(channelHandlerFactory.get());
+                newChannel.directDispatch(directDispatch);
+                newChannel.writeBufferWaterMark(lowWaterMark, highWaterMark);
+                newChannel.idleTimeouts(readerIdleMillis, writerIdleMillis, allIdleMillis);
+                newChannel.adaptiveReadSize(minReadSize, initialReadSize, maxReadSize);
+                newChannel.ioBudget(maxReadBytesPerTurn, maxWriteBytesPerTurn);
 
-            newChannel.start(source);
+                serverHandler.onNewChannel(TcpServer.this, newChannel);
+
+                newChannel.start(group.next()); // channel은 종료될 때까지 선택된 SignalSource에서만 처리된다.
+            }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -138,11 +410,15 @@ public class TcpServer implements Server, Selectable {
     }
 
     private void clear() {
-        try {
-            future.done(); // unlock waiting threads.
-            channel.close(); // close server socket channel.
-        } catch (Exception e) {
-            e.printStackTrace();
+        future.done(); // unlock waiting threads.
+        MBeans.unregister(objectName);
+        objectName = null;
+        for (Listener listener : listeners) {
+            try {
+                listener.channel.close(); // close server socket channel.
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
         }
     }
 }
@@ -0,0 +1,70 @@
+package com.hansdesk.rxnet;
+
+/**
+ * SignalSource.schedule()로 예약한 작업. 예약한 시간이 되면 SignalSource thread에서 실행된다.
+ * cancel()은 어느 thread에서나 호출할 수 있다.
+ */
+public class Timeout {
+    private static final int WAITING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    final Runnable task;
+    final long deadline; // System.nanoTime() 기준.
+    private final SignalSource source; // 취소되면 wheel에서 제거하도록 알린다. null이면 만료 처리 때 제거된다.
+    private volatile int state = WAITING;
+
+    // HashedWheelTimer가 사용하는 필드. SignalSource thread에서만 접근한다.
+    HashedWheelTimer.Bucket bucket;
+    Timeout prev;
+    Timeout next;
+    long remainingRounds;
+
+    Timeout(Runnable task, long deadline) {
+        this(task, deadline, null);
+    }
+
+    Timeout(Runnable task, long deadline, SignalSource source) {
+        this.task = task;
+        this.deadline = deadline;
+        this.source = source;
+    }
+
+    /**
+     * 아직 실행되지 않았으면 실행되지 않도록 취소한다.
+     *
+     * @return 취소되었으면 true, 이미 실행되었거나 취소되었으면 false.
+     */
+    public boolean cancel() {
+        synchronized (this) {
+            if (state != WAITING)
+                return false;
+            state = CANCELLED;
+        }
+
+        // 만료 시간까지 bucket에 남아서 wheel을 계속 돌게 하지 않도록 바로 제거한다.
+        if (source != null)
+            source.cancel(this);
+        return true;
+    }
+
+    public boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    public boolean isExpired() {
+        return state == EXPIRED;
+    }
+
+    /**
+     * 만료 상태로 바꾼다. 이미 취소되었으면 false를 반환하고 작업을 실행하지 않는다.
+     */
+    boolean expire() {
+        synchronized (this) {
+            if (state != WAITING)
+                return false;
+            state = EXPIRED;
+            return true;
+        }
+    }
+}
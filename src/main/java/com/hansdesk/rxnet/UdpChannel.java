@@ -0,0 +1,276 @@
+package com.hansdesk.rxnet;
+
+import com.hansdesk.rxnet.tcp.handler.DatagramHandler;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * UdpServer가 bind한 DatagramChannel 하나.
+ * readable signal이 오면 receiveBatch개까지의 datagram을 재사용되는 pool buffer들로 한 번에 수신한 후에 handler로 전달한다.
+ * send()한 datagram은 바로 전송되지 않고 flush()할 때 한 번에 전송된다. datagram의 경계는 send() 단위 그대로 유지된다.
+ * 수신과 전송에 사용되는 buffer와 객체는 모두 재사용되므로 datagram마다 객체를 생성하지 않는다.
+ *
+ * send(), flush(), stop()은 어느 thread에서나 호출할 수 있다. 다른 thread에서 호출하면 selector thread로 넘겨져서 처리된다.
+ */
+public class UdpChannel implements Selectable {
+    /**
+     * 전송을 기다리는 datagram 하나. 전송이 끝나면 재사용된다.
+     */
+    private static class Outbound {
+        SocketAddress target;
+        final Buffer buffer;
+
+        Outbound(Buffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+
+    private final DatagramChannel channel;
+    private final BufferAllocator allocator;
+    private final DatagramHandler handler;
+    private final int maxDatagramSize;
+    private SignalSource source;
+    private SelectionKey selectionKey;
+    private volatile boolean stopped;
+
+    // 수신용 buffer와 보낸 주소. receiveBatch개를 미리 만들어 두고 재사용한다.
+    private final Buffer[] inBuffers;
+    private final SocketAddress[] senders;
+
+    private final List<Outbound> outQueue = new ArrayList<>();
+    private final List<Outbound> freeOutbounds = new ArrayList<>();
+    private int flushed = 0; // outQueue에서 전송이 끝난 datagram 수.
+    private boolean writeInterest;
+
+    UdpChannel(DatagramChannel channel, BufferAllocator allocator, DatagramHandler handler,
+               int receiveBatch, int maxDatagramSize) {
+        this.channel = channel;
+        this.allocator = allocator;
+        this.handler = handler;
+        this.maxDatagramSize = maxDatagramSize;
+        this.inBuffers = new Buffer[receiveBatch];
+        this.senders = new SocketAddress[receiveBatch];
+    }
+
+    /**
+     * target으로 datagram을 보낸다. flush()할 때 전송되며, onReadComplete()가 반환되면 자동으로 flush()된다.
+     *
+     * @param target 받을 주소.
+     * @param datagram 보낼 데이터. maxDatagramSize보다 클 수 없다. 호출 후에는 읽을 데이터가 남지 않는다.
+     */
+    public void send(SocketAddress target, Buffer datagram) {
+        int size = datagram.size();
+        if (size > maxDatagramSize)
+            throw new IllegalArgumentException("datagram size " + size + " exceeds " + maxDatagramSize);
+
+        if (!inEventLoop()) {
+            Buffer snapshot = new Buffer(allocator, Math.max(1, size));
+            snapshot.transferFrom(datagram);
+            source.execute(() -> {
+                send(target, snapshot);
+                snapshot.release();
+            });
+            return;
+        }
+
+        if (stopped) {
+            datagram.skip(size);
+            return;
+        }
+
+        Outbound outbound = newOutbound(target);
+        outQueue.add(outbound);
+        outbound.buffer.write(datagram); // 복사해야 datagram 하나가 chunk 하나에 담긴다.
+    }
+
+    /**
+     * 전송을 기다리는 datagram들을 전송한다. socket buffer가 가득 차면 writable이 될 때 나머지를 전송한다.
+     */
+    public void flush() {
+        if (!inEventLoop()) {
+            source.execute(this::flush);
+            return;
+        }
+
+        if (stopped || writeInterest || (selectionKey == null))
+            return;
+
+        try {
+            handlerWrite();
+        } catch (IOException e) {
+            onSignalError(e);
+        }
+    }
+
+    public void stop() {
+        if (!inEventLoop()) {
+            source.execute(this::stop);
+            return;
+        }
+
+        if (!stopped) {
+            stopped = true;
+            clear();
+            handler.onStop(this);
+        }
+    }
+
+    public boolean isOpen() {
+        return !stopped && channel.isOpen();
+    }
+
+    public SocketAddress localAddress() throws IOException {
+        return channel.getLocalAddress();
+    }
+
+    @Override
+    public SelectableChannel channel() {
+        return channel;
+    }
+
+    @Override
+    public void selectionKey(SelectionKey key) {
+        selectionKey = key;
+        handler.onStart(this);
+        flush();
+    }
+
+    @Override
+    public void onSignal(int signal) throws IOException {
+        if ((signal & SelectionKey.OP_READ) > 0)
+            handlerRead();
+
+        if (!stopped && ((signal & SelectionKey.OP_WRITE) > 0))
+            handlerWrite();
+    }
+
+    @Override
+    public void onSignalError(Throwable e) {
+        if (!stopped) {
+            stopped = true;
+            handler.onError(this, e);
+            clear();
+        }
+    }
+
+    void start(SignalSource source) {
+        this.source = source;
+        source.register(this, SelectionKey.OP_READ);
+    }
+
+    private boolean inEventLoop() {
+        SignalSource source = this.source;
+        return (source == null) || (SignalSource.current() == source);
+    }
+
+    private void handlerRead() throws IOException {
+        // 먼저 수신할 수 있는 datagram을 모두(최대 receiveBatch개) 수신한다.
+        int received = 0;
+        while (received < inBuffers.length) {
+            Buffer buffer = inBuffer(received);
+            ByteBuffer view = buffer.byteBufferForWrite();
+            int position = view.position();
+            SocketAddress sender = channel.receive(view);
+            if (sender == null) // 더 이상 수신된 datagram이 없다.
+                break;
+
+            buffer.advanceWritePosition(view.position() - position);
+            senders[received++] = sender;
+        }
+
+        // 그 다음에 순서대로 handler로 전달한다.
+        for (int inx = 0; inx < received; inx++) {
+            handler.onRead(this, senders[inx], inBuffers[inx]);
+            senders[inx] = null;
+        }
+
+        if (received > 0) {
+            handler.onReadComplete(this);
+            if (!outQueue.isEmpty())
+                flush();
+        }
+    }
+
+    /**
+     * index번째 수신 buffer를 비워서 반환한다. handler가 chunk를 넘겨받아서 datagram 하나를 담을 수 없게 되었으면 새로 만든다.
+     */
+    private Buffer inBuffer(int index) {
+        Buffer buffer = inBuffers[index];
+        if (buffer != null) {
+            buffer.clear();
+            if (buffer.byteBufferForWrite().remaining() >= maxDatagramSize)
+                return buffer;
+            buffer.release();
+        }
+        return inBuffers[index] = new Buffer(allocator, maxDatagramSize);
+    }
+
+    private void handlerWrite() throws IOException {
+        while (flushed < outQueue.size()) {
+            Outbound outbound = outQueue.get(flushed);
+            // datagram 하나는 항상 chunk 하나에 담겨있다.
+            ByteBuffer datagram = outbound.buffer.byteBufferForRead();
+            int length = datagram.remaining(); // 빈 datagram도 보내면 0을 반환하므로 크기를 미리 기억한다.
+            if ((channel.send(datagram, outbound.target) == 0) && (length > 0))
+                break; // socket buffer가 가득 찼다. writable이 되면 계속한다.
+
+            flushed++;
+        }
+
+        boolean drained = (flushed == outQueue.size());
+        if (drained) {
+            for (Outbound outbound : outQueue)
+                recycle(outbound);
+            outQueue.clear();
+            flushed = 0;
+        }
+
+        if (drained != !writeInterest) {
+            writeInterest = !drained;
+            if (writeInterest)
+                selectionKey.interestOps(selectionKey.interestOps() | SelectionKey.OP_WRITE);
+            else
+                selectionKey.interestOps(selectionKey.interestOps() & ~SelectionKey.OP_WRITE);
+        }
+    }
+
+    private Outbound newOutbound(SocketAddress target) {
+        Outbound outbound = freeOutbounds.isEmpty()
+                ? new Outbound(new Buffer(allocator, maxDatagramSize))
+                : freeOutbounds.remove(freeOutbounds.size() - 1);
+        outbound.target = target;
+        return outbound;
+    }
+
+    private void recycle(Outbound outbound) {
+        outbound.target = null;
+        outbound.buffer.clear();
+        freeOutbounds.add(outbound);
+    }
+
+    private void clear() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        for (Buffer buffer : inBuffers) {
+            if (buffer != null)
+                buffer.release();
+        }
+        for (Outbound outbound : outQueue)
+            outbound.buffer.release();
+        for (Outbound outbound : freeOutbounds)
+            outbound.buffer.release();
+        outQueue.clear();
+        freeOutbounds.clear();
+    }
+}
@@ -0,0 +1,176 @@
+package com.hansdesk.rxnet;
+
+import com.hansdesk.rxnet.tcp.handler.DatagramHandler;
+import com.hansdesk.rxnet.util.JustFuture;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * non-blocking DatagramChannel로 UDP datagram을 수신하는 서버.
+ * reusePort()를 지정하면 여러 개의 DatagramChannel이 같은 주소에 bind되어서 SignalSource들에 분산된다.
+ */
+public class UdpServer implements Server {
+    private final JustFuture future = new JustFuture();
+    private final List<UdpChannel> channels = new ArrayList<>();
+
+    private SignalSourceGroup group = SignalSources.group();
+    private String hostname;
+    private int port;
+    private int reusePortChannels = 0;
+    private int receiveBatch = 64;
+    private int maxDatagramSize = 2048;
+    private int receiveBufferSize = 0;
+    private BufferAllocator allocator = BufferAllocators.pooled();
+    private DatagramHandler handler = new DatagramHandler() {};
+
+    UdpServer() {
+    }
+
+    public UdpServer host(String hostname) {
+        this.hostname = hostname;
+        return this;
+    }
+
+    public UdpServer port(int port) {
+        this.port = port;
+        return this;
+    }
+
+    /**
+     * DatagramChannel이 등록될 SignalSourceGroup을 지정한다. 지정하지 않으면 SignalSources.group()을 사용한다.
+     *
+     * @param group 사용할 SignalSourceGroup.
+     * @return this
+     */
+    public UdpServer signalSourceGroup(SignalSourceGroup group) {
+        this.group = group;
+        return this;
+    }
+
+    /**
+     * SO_REUSEPORT로 같은 주소에 count개의 DatagramChannel을 bind한다. 커널이 보낸 주소에 따라서 datagram을 분산시킨다.
+     * port가 0이면 첫 channel이 할당받은 port에 나머지 channel들이 bind된다.
+     *
+     * @param count bind할 DatagramChannel 수.
+     * @return this
+     */
+    public UdpServer reusePort(int count) {
+        if (count <= 0)
+            throw new IllegalArgumentException("count must be positive: " + count);
+        this.reusePortChannels = count;
+        return this;
+    }
+
+    /**
+     * readable signal 한 번에 수신할 최대 datagram 수를 지정한다. 기본값은 64이다.
+     *
+     * @param receiveBatch signal 한 번에 수신할 최대 datagram 수.
+     * @return this
+     */
+    public UdpServer receiveBatch(int receiveBatch) {
+        if (receiveBatch <= 0)
+            throw new IllegalArgumentException("receiveBatch must be positive: " + receiveBatch);
+        this.receiveBatch = receiveBatch;
+        return this;
+    }
+
+    /**
+     * 수신하거나 전송할 datagram의 최대 크기를 지정한다. 이보다 큰 datagram은 수신할 때 잘린다. 기본값은 2048이다.
+     *
+     * @param maxDatagramSize datagram의 최대 크기.
+     * @return this
+     */
+    public UdpServer maxDatagramSize(int maxDatagramSize) {
+        if ((maxDatagramSize <= 0) || (maxDatagramSize > 65507))
+            throw new IllegalArgumentException("invalid maxDatagramSize: " + maxDatagramSize);
+        this.maxDatagramSize = maxDatagramSize;
+        return this;
+    }
+
+    /**
+     * socket의 SO_RCVBUF 크기를 지정한다. 0이면 시스템 기본값을 사용한다.
+     *
+     * @param receiveBufferSize socket receive buffer 크기.
+     * @return this
+     */
+    public UdpServer receiveBufferSize(int receiveBufferSize) {
+        this.receiveBufferSize = receiveBufferSize;
+        return this;
+    }
+
+    public UdpServer allocator(BufferAllocator allocator) {
+        this.allocator = allocator;
+        return this;
+    }
+
+    /**
+     * 모든 DatagramChannel이 공유할 handler를 지정한다. reusePort()를 사용하면 여러 SignalSource thread에서 동시에 호출될 수 있다.
+     *
+     * @param handler datagram을 처리할 handler.
+     * @return this
+     */
+    public UdpServer handler(DatagramHandler handler) {
+        this.handler = handler;
+        return this;
+    }
+
+    @Override
+    public Server start() {
+        InetSocketAddress inetSocketAddress = (hostname == null) ? new InetSocketAddress(port) : new InetSocketAddress(hostname, port);
+        int channelCount = Math.max(reusePortChannels, 1);
+
+        try {
+            for (int inx = 0; inx < channelCount; inx++) {
+                DatagramChannel channel = DatagramChannel.open();
+                channel.configureBlocking(false);
+                if (reusePortChannels > 0)
+                    channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+                if (receiveBufferSize > 0)
+                    channel.setOption(StandardSocketOptions.SO_RCVBUF, receiveBufferSize);
+                channel.bind(inetSocketAddress);
+                if (inx == 0) // port 0이면 첫 channel이 받은 port에 나머지 channel들도 bind한다.
+                    inetSocketAddress = new InetSocketAddress(inetSocketAddress.getAddress(), channel.socket().getLocalPort());
+
+                UdpChannel udpChannel = new UdpChannel(channel, allocator, handler, receiveBatch, maxDatagramSize);
+                channels.add(udpChannel);
+                udpChannel.start(group.next());
+            }
+        } catch (IOException e) {
+            clear();
+            throw new RuntimeException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public void stop() {
+        if (isRunning())
+            clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return !future.isDone();
+    }
+
+    @Override
+    public void await() {
+        future.await();
+    }
+
+    @Override
+    public boolean await(long millis) {
+        return future.await(millis);
+    }
+
+    private void clear() {
+        future.done(); // unlock waiting threads.
+        for (UdpChannel channel : channels)
+            channel.stop();
+    }
+}
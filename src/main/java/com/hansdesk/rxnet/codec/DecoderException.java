@@ -0,0 +1,13 @@
+package com.hansdesk.rxnet.codec;
+
+/**
+ * FrameDecoder가 받은 데이터를 frame으로 해석할 수 없을 때 발생한다.
+ * 발생하면 channel의 handler로 onError()가 전달되고 channel은 닫힌다.
+ */
+public class DecoderException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public DecoderException(String message) {
+        super(message);
+    }
+}
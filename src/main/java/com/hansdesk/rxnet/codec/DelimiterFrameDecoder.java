@@ -0,0 +1,97 @@
+package com.hansdesk.rxnet.codec;
+
+import com.hansdesk.rxnet.Buffer;
+import com.hansdesk.rxnet.Channel;
+import com.hansdesk.rxnet.Handler;
+import com.hansdesk.rxnet.util.Handlers;
+
+/**
+ * 구분자(delimiter)로 frame을 자른다.
+ * 이전 read에서 검색을 마친 위치를 기억하므로 데이터가 나누어 들어와도 이미 검색한 부분을 다시 검색하지 않는다.
+ */
+public class DelimiterFrameDecoder extends FrameDecoder {
+    private final int maxFrameLength;
+    private final byte[] delimiter;
+    private final boolean stripDelimiter;
+
+    private int scanned = 0; // 구분자가 시작되지 않는 것을 확인한 byte 수.
+
+    public DelimiterFrameDecoder(int maxFrameLength, byte[] delimiter, boolean stripDelimiter) {
+        this(maxFrameLength, delimiter, stripDelimiter, Handlers.EMPTY_CHANNEL_HANDLER);
+    }
+
+    /**
+     * @param maxFrameLength 구분자를 제외한 frame의 최대 크기. 넘으면 TooLongFrameException이 발생한다.
+     * @param delimiter 구분자.
+     * @param stripDelimiter true이면 전달하는 frame에서 구분자를 제거한다.
+     * @param next frame을 전달받을 handler.
+     */
+    public DelimiterFrameDecoder(int maxFrameLength, byte[] delimiter, boolean stripDelimiter, Handler next) {
+        super(next);
+        if (delimiter.length == 0)
+            throw new IllegalArgumentException("empty delimiter");
+
+        this.maxFrameLength = maxFrameLength;
+        this.delimiter = delimiter.clone();
+        this.stripDelimiter = stripDelimiter;
+    }
+
+    @Override
+    protected boolean decode(Channel channel, Buffer buffer) {
+        int index = find(buffer);
+        if (index < 0) {
+            scanned = Math.max(scanned, buffer.size() - delimiter.length + 1);
+            if (scanned > maxFrameLength)
+                throw new TooLongFrameException("frame length exceeds " + maxFrameLength);
+            return false;
+        }
+
+        scanned = 0;
+        if (index > maxFrameLength)
+            throw new TooLongFrameException("frame length " + index + " exceeds " + maxFrameLength);
+
+        if (stripDelimiter) {
+            emitFrame(channel, buffer, index);
+            buffer.skip(delimiter.length);
+        } else {
+            emitFrame(channel, buffer, index + delimiter.length);
+        }
+        return true;
+    }
+
+    /**
+     * 구분자를 찾아서 잘라낸 frame을 전달한다. 하위 클래스에서 frame을 더 다듬을 수 있다.
+     *
+     * @param channel 현재 channel.
+     * @param buffer channel의 read buffer.
+     * @param length frame의 크기.
+     */
+    protected void emitFrame(Channel channel, Buffer buffer, int length) {
+        emit(channel, buffer, length);
+    }
+
+    /**
+     * 이전에 검색한 위치부터 구분자를 찾는다.
+     *
+     * @return 구분자가 시작되는 위치. 없으면 -1.
+     */
+    private int find(Buffer buffer) {
+        int from = scanned;
+        while (true) {
+            int index = buffer.indexOf(delimiter[0], from);
+            if ((index < 0) || (index + delimiter.length > buffer.size()))
+                return -1;
+            if (matches(buffer, index))
+                return index;
+            from = index + 1;
+        }
+    }
+
+    private boolean matches(Buffer buffer, int index) {
+        for (int inx = 1; inx < delimiter.length; inx++) {
+            if (buffer.peek(index + inx) != (delimiter[inx] & 0xff))
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,33 @@
+package com.hansdesk.rxnet.codec;
+
+import com.hansdesk.rxnet.Buffer;
+import com.hansdesk.rxnet.Channel;
+import com.hansdesk.rxnet.Handler;
+import com.hansdesk.rxnet.util.Handlers;
+
+/**
+ * 들어오는 데이터를 항상 같은 크기의 frame으로 자른다.
+ */
+public class FixedLengthFrameDecoder extends FrameDecoder {
+    private final int frameLength;
+
+    public FixedLengthFrameDecoder(int frameLength) {
+        this(frameLength, Handlers.EMPTY_CHANNEL_HANDLER);
+    }
+
+    public FixedLengthFrameDecoder(int frameLength, Handler next) {
+        super(next);
+        if (frameLength <= 0)
+            throw new IllegalArgumentException("frameLength must be positive: " + frameLength);
+        this.frameLength = frameLength;
+    }
+
+    @Override
+    protected boolean decode(Channel channel, Buffer buffer) {
+        if (buffer.size() < frameLength)
+            return false;
+
+        emit(channel, buffer, frameLength);
+        return true;
+    }
+}
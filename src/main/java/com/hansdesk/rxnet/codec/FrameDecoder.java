@@ -0,0 +1,127 @@
+package com.hansdesk.rxnet.codec;
+
+import com.hansdesk.rxnet.Buffer;
+import com.hansdesk.rxnet.BufferAllocator;
+import com.hansdesk.rxnet.BufferAllocators;
+import com.hansdesk.rxnet.Channel;
+import com.hansdesk.rxnet.Handler;
+import com.hansdesk.rxnet.HandlerChain;
+import com.hansdesk.rxnet.IdleState;
+import com.hansdesk.rxnet.util.Handlers;
+
+/**
+ * channel로 들어오는 데이터를 frame 단위로 잘라서 next handler로 전달하는 handler의 기반 클래스.
+ * 완성된 frame은 하나씩 새로운 Buffer에 담겨서 next handler의 onInbound()로 전달된다. frame의 chunk들은 가능하면 복사되지 않고 넘겨진다.
+ * frame Buffer는 next handler의 onInbound()가 반환되면 release되므로 보관하려면 다른 Buffer로 transferFrom() 해야 한다.
+ * onInbound() 이외의 이벤트는 그대로 next handler로 전달된다.
+ *
+ * HandlerChain에 추가하면 chain에서 decoder 뒤에 있는 handler들이 next handler가 된다. 이 경우에는 next 없이 생성한다.
+ *
+ * decoder는 이전 read에서 확인한 내용을 기억하므로 channel마다 따로 생성해야 한다.
+ * TcpServer.channelHandlerFactory()를 사용한다.
+ */
+public abstract class FrameDecoder implements HandlerChain.Forwarding {
+    // frame Buffer의 첫 chunk 최대 크기.
+    private static final int MAX_FRAME_CHUNK = 8192;
+
+    private volatile Handler next;
+    private final BufferAllocator allocator;
+    private Channel channel;
+
+    /**
+     * HandlerChain에서 사용할 decoder를 생성한다. next handler는 chain에 의해서 지정된다.
+     */
+    protected FrameDecoder() {
+        this(Handlers.EMPTY_CHANNEL_HANDLER);
+    }
+
+    protected FrameDecoder(Handler next) {
+        this(next, BufferAllocators.pooled());
+    }
+
+    /**
+     * @param next frame을 전달받을 handler.
+     * @param allocator frame Buffer가 사용할 allocator.
+     */
+    protected FrameDecoder(Handler next, BufferAllocator allocator) {
+        this.next = next;
+        this.allocator = allocator;
+    }
+
+    @Override
+    public void next(Handler next) {
+        this.next = next;
+    }
+
+    @Override
+    public void onStart(Channel channel) {
+        bind(channel);
+        next.onStart(channel);
+    }
+
+    @Override
+    public void onInbound(Channel channel, Buffer buffer) {
+        bind(channel);
+        while ((buffer.size() > 0) && decode(channel, buffer))
+            ; // 완성된 frame이 없을 때까지 반복한다.
+    }
+
+    @Override
+    public void onOutbound(Channel channel, Buffer buffer) {
+        next.onOutbound(channel, buffer);
+    }
+
+    @Override
+    public void onWritabilityChanged(Channel channel, boolean writable) {
+        next.onWritabilityChanged(channel, writable);
+    }
+
+    @Override
+    public void onIdle(Channel channel, IdleState state) {
+        next.onIdle(channel, state);
+    }
+
+    @Override
+    public void onStop(Channel channel) {
+        next.onStop(channel);
+    }
+
+    @Override
+    public void onError(Channel channel, Throwable e) {
+        next.onError(channel, e);
+    }
+
+    /**
+     * buffer의 앞에서부터 frame 하나를 decode한다. frame이 완성되었으면 emit()으로 전달하고 true를 반환한다.
+     * 데이터가 부족하면 지금까지 확인한 내용을 기억해두고 false를 반환한다. 다음 read에서 이어서 decode한다.
+     *
+     * @param channel 현재 channel.
+     * @param buffer channel의 read buffer.
+     * @return frame을 전달했으면 true, 데이터가 부족하면 false.
+     */
+    protected abstract boolean decode(Channel channel, Buffer buffer);
+
+    /**
+     * buffer의 앞쪽 length byte를 frame으로 만들어서 next handler로 전달한다.
+     *
+     * @param channel 현재 channel.
+     * @param buffer channel의 read buffer.
+     * @param length frame의 크기.
+     */
+    protected void emit(Channel channel, Buffer buffer, int length) {
+        Buffer frame = new Buffer(allocator, Math.max(1, Math.min(length, MAX_FRAME_CHUNK)));
+        try {
+            frame.transferFrom(buffer, length);
+            next.onInbound(channel, frame);
+        } finally {
+            frame.release();
+        }
+    }
+
+    private void bind(Channel channel) {
+        if (this.channel == null)
+            this.channel = channel;
+        else if (this.channel != channel)
+            throw new IllegalStateException("FrameDecoder cannot be shared between channels. Use TcpServer.channelHandlerFactory().");
+    }
+}
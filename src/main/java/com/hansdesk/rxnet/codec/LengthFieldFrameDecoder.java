@@ -0,0 +1,108 @@
+package com.hansdesk.rxnet.codec;
+
+import com.hansdesk.rxnet.Buffer;
+import com.hansdesk.rxnet.Channel;
+import com.hansdesk.rxnet.Handler;
+import com.hansdesk.rxnet.util.Handlers;
+
+import java.nio.ByteOrder;
+
+/**
+ * frame 앞쪽의 length field 값으로 frame을 자른다.
+ * frame의 전체 크기는 lengthFieldOffset + lengthFieldLength + (length field 값) + lengthAdjustment이다.
+ * 전달되는 frame에서는 앞쪽 initialBytesToStrip byte가 제거된다.
+ * header를 한 번 해석하면 frame이 완성될 때까지 그 길이를 기억하므로 header를 다시 읽지 않는다.
+ */
+public class LengthFieldFrameDecoder extends FrameDecoder {
+    private final int maxFrameLength;
+    private final int lengthFieldOffset;
+    private final int lengthFieldLength;
+    private final ByteOrder byteOrder;
+    private final int lengthAdjustment;
+    private final int initialBytesToStrip;
+
+    private int frameLength = -1; // 해석이 끝난 현재 frame의 크기. 아직 header를 해석하지 않았으면 -1.
+
+    /**
+     * HandlerChain에서 사용할 decoder를 생성한다. 나머지는 LengthFieldFrameDecoder(int, int, Handler)와 같다.
+     */
+    public LengthFieldFrameDecoder(int maxFrameLength, int lengthFieldLength) {
+        this(maxFrameLength, lengthFieldLength, Handlers.EMPTY_CHANNEL_HANDLER);
+    }
+
+    /**
+     * header에 big endian length field만 있고 header는 제거해서 전달하는 decoder를 생성한다.
+     *
+     * @param maxFrameLength header를 포함한 frame의 최대 크기.
+     * @param lengthFieldLength length field의 크기. 1, 2, 4, 8 중 하나.
+     * @param next frame을 전달받을 handler.
+     */
+    public LengthFieldFrameDecoder(int maxFrameLength, int lengthFieldLength, Handler next) {
+        this(maxFrameLength, 0, lengthFieldLength, ByteOrder.BIG_ENDIAN, 0, lengthFieldLength, next);
+    }
+
+    /**
+     * @param maxFrameLength header를 포함한 frame의 최대 크기. 넘으면 TooLongFrameException이 발생한다.
+     * @param lengthFieldOffset frame 처음부터 length field까지의 거리.
+     * @param lengthFieldLength length field의 크기. 1, 2, 4, 8 중 하나.
+     * @param byteOrder length field의 byte order.
+     * @param lengthAdjustment length field 값에 더해줄 값. length field 값이 header를 포함하면 음수가 된다.
+     * @param initialBytesToStrip 전달하는 frame의 앞에서 제거할 byte 수.
+     * @param next frame을 전달받을 handler.
+     */
+    public LengthFieldFrameDecoder(int maxFrameLength, int lengthFieldOffset, int lengthFieldLength, ByteOrder byteOrder,
+                                   int lengthAdjustment, int initialBytesToStrip, Handler next) {
+        super(next);
+        if ((lengthFieldLength != 1) && (lengthFieldLength != 2) && (lengthFieldLength != 4) && (lengthFieldLength != 8))
+            throw new IllegalArgumentException("lengthFieldLength must be 1, 2, 4 or 8: " + lengthFieldLength);
+        if ((lengthFieldOffset < 0) || (initialBytesToStrip < 0))
+            throw new IllegalArgumentException("lengthFieldOffset and initialBytesToStrip must not be negative");
+
+        this.maxFrameLength = maxFrameLength;
+        this.lengthFieldOffset = lengthFieldOffset;
+        this.lengthFieldLength = lengthFieldLength;
+        this.byteOrder = byteOrder;
+        this.lengthAdjustment = lengthAdjustment;
+        this.initialBytesToStrip = initialBytesToStrip;
+    }
+
+    @Override
+    protected boolean decode(Channel channel, Buffer buffer) {
+        if (frameLength < 0) {
+            int headerLength = lengthFieldOffset + lengthFieldLength;
+            if (buffer.size() < headerLength)
+                return false;
+
+            long length = lengthField(buffer) + lengthAdjustment + headerLength;
+            if ((length < headerLength) || (length < initialBytesToStrip))
+                throw new DecoderException("invalid frame length: " + length);
+            if (length > maxFrameLength) // 데이터가 다 오기 전에 미리 거부한다.
+                throw new TooLongFrameException("frame length " + length + " exceeds " + maxFrameLength);
+
+            frameLength = (int) length;
+        }
+
+        if (buffer.size() < frameLength)
+            return false;
+
+        buffer.skip(initialBytesToStrip);
+        int length = frameLength - initialBytesToStrip;
+        frameLength = -1;
+        emit(channel, buffer, length);
+        return true;
+    }
+
+    private long lengthField(Buffer buffer) {
+        boolean bigEndian = (byteOrder == ByteOrder.BIG_ENDIAN);
+        switch (lengthFieldLength) {
+            case 1:
+                return buffer.peek(lengthFieldOffset);
+            case 2:
+                return (bigEndian ? buffer.peekShort(lengthFieldOffset) : buffer.peekShortLE(lengthFieldOffset)) & 0xffff;
+            case 4:
+                return (bigEndian ? buffer.peekInt(lengthFieldOffset) : buffer.peekIntLE(lengthFieldOffset)) & 0xffffffffL;
+            default:
+                return bigEndian ? buffer.peekLong(lengthFieldOffset) : buffer.peekLongLE(lengthFieldOffset);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.hansdesk.rxnet.codec;
+
+import com.hansdesk.rxnet.Buffer;
+import com.hansdesk.rxnet.BufferAllocator;
+import com.hansdesk.rxnet.BufferAllocators;
+import com.hansdesk.rxnet.Channel;
+
+import java.nio.ByteOrder;
+
+/**
+ * LengthFieldFrameDecoder에 대응하는 encoder. payload 앞에 payload의 크기를 length field로 붙인다.
+ * MAX_COPY_LENGTH 이하의 payload는 length field와 같은 chunk로 복사되어 frame 하나가 chunk 하나에 담긴다.
+ * 그보다 큰 payload는 Buffer.transferFrom()으로 옮기므로 절반 이상 채워진 chunk는 복사되지 않고 넘겨지고 나머지만 복사된다.
+ * 상태가 없으므로 여러 channel에서 공유할 수 있다.
+ */
+public class LengthFieldPrepender {
+    // 이 크기 이하의 payload는 chunk를 넘겨받지 않고 복사한다. 작은 chunk가 gathering write의 원소를 늘리지 않게 한다.
+    private static final int MAX_COPY_LENGTH = 1024;
+
+    private final int lengthFieldLength;
+    private final ByteOrder byteOrder;
+    private final BufferAllocator allocator;
+
+    public LengthFieldPrepender(int lengthFieldLength) {
+        this(lengthFieldLength, ByteOrder.BIG_ENDIAN);
+    }
+
+    public LengthFieldPrepender(int lengthFieldLength, ByteOrder byteOrder) {
+        this(lengthFieldLength, byteOrder, BufferAllocators.pooled());
+    }
+
+    /**
+     * @param lengthFieldLength length field의 크기. 1, 2, 4, 8 중 하나.
+     * @param byteOrder length field의 byte order.
+     * @param allocator write()에서 frame Buffer가 사용할 allocator.
+     */
+    public LengthFieldPrepender(int lengthFieldLength, ByteOrder byteOrder, BufferAllocator allocator) {
+        if ((lengthFieldLength != 1) && (lengthFieldLength != 2) && (lengthFieldLength != 4) && (lengthFieldLength != 8))
+            throw new IllegalArgumentException("lengthFieldLength must be 1, 2, 4 or 8: " + lengthFieldLength);
+
+        this.lengthFieldLength = lengthFieldLength;
+        this.byteOrder = byteOrder;
+        this.allocator = allocator;
+    }
+
+    /**
+     * payload의 크기를 out에 write하고 payload의 내용을 out으로 옮긴다.
+     *
+     * @param payload frame의 내용. 호출 후에는 읽을 데이터가 남지 않는다.
+     * @param out frame을 write할 buffer.
+     */
+    public void encode(Buffer payload, Buffer out) {
+        int length = payload.size();
+        writeLength(out, length);
+        if (length <= MAX_COPY_LENGTH)
+            out.write(payload);
+        else
+            out.transferFrom(payload);
+    }
+
+    /**
+     * payload에 length field를 붙여서 channel로 write한다.
+     *
+     * @param channel frame을 write할 channel.
+     * @param payload frame의 내용. 호출 후에는 읽을 데이터가 남지 않는다.
+     */
+    public void write(Channel channel, Buffer payload) {
+        int length = payload.size();
+        Buffer frame = new Buffer(allocator, lengthFieldLength + ((length <= MAX_COPY_LENGTH) ? length : 0));
+        try {
+            encode(payload, frame);
+            channel.write(frame);
+        } finally {
+            frame.release();
+        }
+    }
+
+    private void writeLength(Buffer out, int length) {
+        boolean bigEndian = (byteOrder == ByteOrder.BIG_ENDIAN);
+        switch (lengthFieldLength) {
+            case 1:
+                if (length > 0xff)
+                    throw new IllegalArgumentException("length does not fit in 1 byte: " + length);
+                out.write(length);
+                break;
+            case 2:
+                if (length > 0xffff)
+                    throw new IllegalArgumentException("length does not fit in 2 bytes: " + length);
+                if (bigEndian) out.writeShort(length); else out.writeShortLE(length);
+                break;
+            case 4:
+                if (bigEndian) out.writeInt(length); else out.writeIntLE(length);
+                break;
+            default:
+                if (bigEndian) out.writeLong(length); else out.writeLongLE(length);
+                break;
+        }
+    }
+}
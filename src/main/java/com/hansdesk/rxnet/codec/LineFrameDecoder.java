@@ -0,0 +1,36 @@
+package com.hansdesk.rxnet.codec;
+
+import com.hansdesk.rxnet.Buffer;
+import com.hansdesk.rxnet.Channel;
+import com.hansdesk.rxnet.Handler;
+import com.hansdesk.rxnet.util.Handlers;
+
+/**
+ * "\n" 또는 "\r\n"으로 끝나는 line 단위로 frame을 자른다. 전달되는 frame에는 줄바꿈 문자가 포함되지 않는다.
+ */
+public class LineFrameDecoder extends DelimiterFrameDecoder {
+    private static final byte[] LF = { '\n' };
+
+    private final int maxLineLength;
+
+    public LineFrameDecoder(int maxLineLength) {
+        this(maxLineLength, Handlers.EMPTY_CHANNEL_HANDLER);
+    }
+
+    public LineFrameDecoder(int maxLineLength, Handler next) {
+        super(maxLineLength + 1, LF, true, next); // '\r'이 붙을 수 있으므로 1 byte 여유를 둔다.
+        this.maxLineLength = maxLineLength;
+    }
+
+    @Override
+    protected void emitFrame(Channel channel, Buffer buffer, int length) {
+        boolean cr = (length > 0) && (buffer.peek(length - 1) == '\r');
+        int lineLength = cr ? length - 1 : length;
+        if (lineLength > maxLineLength) // 여유로 둔 1 byte는 '\r'일 때만 허용한다.
+            throw new TooLongFrameException("line length " + lineLength + " exceeds " + maxLineLength);
+
+        emit(channel, buffer, lineLength);
+        if (cr)
+            buffer.skip(1);
+    }
+}
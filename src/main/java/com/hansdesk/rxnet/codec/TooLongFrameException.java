@@ -0,0 +1,12 @@
+package com.hansdesk.rxnet.codec;
+
+/**
+ * frame의 크기가 decoder에 지정된 최대 크기를 넘었을 때 발생한다.
+ */
+public class TooLongFrameException extends DecoderException {
+    private static final long serialVersionUID = 1L;
+
+    public TooLongFrameException(String message) {
+        super(message);
+    }
+}
@@ -1,4 +1,35 @@
 package com.hansdesk.rxnet.tcp.handler;
 
+import com.hansdesk.rxnet.Buffer;
+import com.hansdesk.rxnet.UdpChannel;
+
+import java.net.SocketAddress;
+
+/**
+ * UdpServer의 UdpChannel에서 발생하는 이벤트를 처리한다.
+ * 하나의 UdpChannel에 대한 이벤트는 항상 그 channel을 담당하는 SignalSource thread에서 호출된다.
+ */
 public interface DatagramHandler extends InboundHandler, OutboundHandler, ErrorHandler {
+    default void onStart(UdpChannel channel) {}
+
+    /**
+     * datagram 하나가 수신되면 호출된다. readable signal 한 번에 여러 datagram을 수신한 후에 순서대로 호출된다.
+     * datagram buffer는 다음 수신에 재사용되므로 메소드를 나간 후에는 사용해서는 안 된다. 보관하려면 다른 Buffer로 복사한다.
+     *
+     * @param channel current channel.
+     * @param sender datagram을 보낸 주소.
+     * @param datagram 수신된 datagram.
+     */
+    default void onRead(UdpChannel channel, SocketAddress sender, Buffer datagram) {}
+
+    /**
+     * 한 번에 수신한 datagram들에 대한 onRead() 호출이 모두 끝나면 호출된다. 이후에 send()한 datagram들이 자동으로 flush된다.
+     *
+     * @param channel current channel.
+     */
+    default void onReadComplete(UdpChannel channel) {}
+
+    default void onStop(UdpChannel channel) {}
+
+    default void onError(UdpChannel channel, Throwable e) {}
 }
@@ -0,0 +1,45 @@
+package com.hansdesk.rxnet.util;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+public class MBeans {
+    public static final String DOMAIN = "com.hansdesk.rxnet";
+
+    /**
+     * platform MBeanServer에 등록한다. 등록에 실패해도 서비스에는 영향이 없으므로 예외를 던지지 않는다.
+     *
+     * @param mbean 등록할 MBean.
+     * @param type ObjectName의 type 속성.
+     * @param name ObjectName의 name 속성.
+     * @return 등록된 ObjectName. 실패하면 null.
+     */
+    public static ObjectName register(Object mbean, String type, String name) {
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) // 같은 이름이 남아있으면 새 것으로 교체한다.
+                server.unregisterMBean(objectName);
+            server.registerMBean(mbean, objectName);
+            return objectName;
+        } catch (JMException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    public static void unregister(ObjectName objectName) {
+        if (objectName == null)
+            return;
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName))
+                server.unregisterMBean(objectName);
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+}
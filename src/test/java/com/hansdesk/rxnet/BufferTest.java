@@ -0,0 +1,152 @@
+package com.hansdesk.rxnet;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferTest {
+
+    @Test
+    void operationsAfterReleaseAreNoOps() {
+        Buffer buffer = new Buffer(BufferAllocators.pooled(), 64);
+        buffer.write(new byte[100]);
+        buffer.mark();
+        buffer.release();
+
+        assertDoesNotThrow(buffer::unmark);
+        assertDoesNotThrow(buffer::clear);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void transferDoesNotGrowWriteChunk() {
+        Buffer buffer = new Buffer(BufferAllocators.pooled(), 64);
+        for (int inx = 0; inx < 20; inx++) {
+            Buffer source = new Buffer(BufferAllocators.pooled(), 64);
+            source.write(new byte[100]); // 64 byte chunk 하나는 넘겨줄 수 있다.
+            buffer.transferFrom(source);
+            source.release();
+
+            assertEquals(64 - 36, buffer.writableBytes()); // 남은 36 byte는 새 64 byte chunk로 복사된다.
+        }
+        assertEquals(2000, buffer.size());
+        buffer.release();
+    }
+
+    @Test
+    void transferCopiesSmallChunk() {
+        Buffer header = new Buffer(BufferAllocators.pooled(), 64);
+        header.write(new byte[4]);
+        Buffer payload = new Buffer(BufferAllocators.pooled(), 64);
+        payload.write(new byte[100]);
+        header.transferFrom(payload); // header의 4 byte chunk가 봉인된다.
+        payload.release();
+
+        Buffer buffer = new Buffer(BufferAllocators.pooled(), 64);
+        buffer.transferFrom(header);
+        header.release();
+
+        assertEquals(104, buffer.size());
+        buffer.byteBuffersForRead();
+        assertTrue(buffer.byteBuffers()[0].remaining() > 4);
+        buffer.release();
+    }
+
+    @Test
+    void resetKeepsBytesWrittenAfterMark() {
+        Buffer buffer = new Buffer(BufferAllocators.pooled(), 64);
+        buffer.write(new byte[10]);
+        buffer.read();
+        buffer.mark();
+        buffer.write(new byte[100]);
+        buffer.read();
+        buffer.reset();
+
+        assertEquals(109, buffer.size());
+        assertEquals(109, buffer.skip(Integer.MAX_VALUE));
+        buffer.release();
+    }
+
+    @Test
+    void resetKeepsBytesTransferredAfterMark() {
+        Buffer buffer = new Buffer(BufferAllocators.pooled(), 64);
+        buffer.write(new byte[10]);
+        buffer.mark();
+        Buffer source = new Buffer(BufferAllocators.pooled(), 64);
+        source.write(new byte[4000]);
+        buffer.transferFrom(source);
+        source.release();
+        buffer.skip(200);
+        buffer.reset();
+
+        assertEquals(4010, buffer.size());
+        buffer.release();
+    }
+
+    @Test
+    void ringWrapsAroundWhileReadingAndWriting() {
+        Buffer buffer = new Buffer(BufferAllocators.pooled(), 16);
+        int written = 0;
+        int read = 0;
+        for (int round = 0; round < 200; round++) {
+            written = writeSequence(buffer, written, 40);
+            read = readSequence(buffer, read, 30); // 다 읽은 chunk가 정리되면서 head가 ring을 돈다.
+            assertEquals(written - read, buffer.size());
+        }
+        readSequence(buffer, read, written - read);
+        assertEquals(0, buffer.size());
+        buffer.release();
+    }
+
+    @Test
+    void chunksAreKeptWhileMarked() {
+        Buffer buffer = new Buffer(BufferAllocators.pooled(), 16);
+        int written = writeSequence(buffer, 0, 100);
+        buffer.mark();
+        readSequence(buffer, 0, 80); // mark 상태이므로 다 읽은 chunk도 정리되지 않는다.
+        writeSequence(buffer, written, 50);
+        buffer.reset();
+
+        assertEquals(150, buffer.size());
+        readSequence(buffer, 0, 150);
+        buffer.release();
+    }
+
+    @Test
+    void resetAfterRingGrowth() {
+        Buffer buffer = new Buffer(BufferAllocators.pooled(), 16);
+        int written = writeSequence(buffer, 0, 10);
+        int read = readSequence(buffer, 0, 5);
+        buffer.mark();
+        written = writeSequence(buffer, written, 20000); // chunk 수가 늘어나서 ring이 커진다.
+        readSequence(buffer, read, 10000);
+        buffer.reset();
+
+        assertEquals(written - read, buffer.size());
+        readSequence(buffer, read, written - read);
+        assertEquals(0, buffer.size());
+        buffer.release();
+    }
+
+    /**
+     * from부터 이어지는 일련번호의 하위 byte를 length개 write한다.
+     *
+     * @return 다음 일련번호.
+     */
+    private static int writeSequence(Buffer buffer, int from, int length) {
+        for (int inx = from; inx < from + length; inx++)
+            buffer.write(inx & 0xff);
+        return from + length;
+    }
+
+    /**
+     * length개를 읽어서 from부터 이어지는 일련번호와 같은지 확인한다.
+     *
+     * @return 다음 일련번호.
+     */
+    private static int readSequence(Buffer buffer, int from, int length) {
+        for (int inx = from; inx < from + length; inx++)
+            assertEquals(inx & 0xff, buffer.read(), "offset " + inx);
+        return from + length;
+    }
+}
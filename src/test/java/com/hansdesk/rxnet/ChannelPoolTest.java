@@ -0,0 +1,43 @@
+package com.hansdesk.rxnet;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChannelPoolTest {
+
+    @Test
+    void releaseSkipsCancelledWaiter() throws Exception {
+        TcpServer server = Servers.newTcpServer()
+                .host("127.0.0.1")
+                .port(0)
+                .channelHandler(new Handler() {});
+        server.start();
+        try {
+            InetSocketAddress address = new InetSocketAddress("127.0.0.1", server.localPort());
+            ChannelPool pool = Clients.newTcpClient()
+                    .channelHandler(new Handler() {})
+                    .newPool()
+                    .maxPerHost(1);
+
+            Channel channel = pool.acquire(address).get(5, TimeUnit.SECONDS);
+            CompletableFuture<Channel> waiter = pool.acquire(address);
+            assertFalse(waiter.isDone()); // maxPerHost에 도달해서 기다린다.
+            waiter.cancel(false);
+
+            pool.release(channel);
+            assertEquals(1, pool.size(address));
+            assertEquals(1, pool.idleCount(address)); // 취소된 요청에 넘겨주지 않고 pool에 넣어둔다.
+
+            assertSame(channel, pool.acquire(address).get(5, TimeUnit.SECONDS));
+            pool.release(channel);
+            pool.close();
+        } finally {
+            server.stop();
+        }
+    }
+}
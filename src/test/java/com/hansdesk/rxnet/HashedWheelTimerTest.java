@@ -0,0 +1,121 @@
+package com.hansdesk.rxnet;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedWheelTimerTest {
+
+    @Test
+    void expiresInDeadlineOrder() throws Exception {
+        HashedWheelTimer timer = new HashedWheelTimer(1, 64);
+        List<Integer> order = new ArrayList<>();
+        long now = System.nanoTime();
+        for (int delay : new int[] { 30, 10, 20, 0 })
+            timer.add(new Timeout(() -> order.add(delay), now + delay * 1_000_000L));
+
+        drive(timer, () -> order.size() == 4);
+        assertEquals(List.of(0, 10, 20, 30), order);
+        assertEquals(0, timer.nextTimeoutMillis());
+    }
+
+    @Test
+    void deadlineSeveralRoundsAway() throws Exception {
+        // wheel 한 바퀴는 4ms이므로 25ms 뒤의 timeout은 여러 바퀴를 기다려야 한다.
+        HashedWheelTimer timer = new HashedWheelTimer(1, 4);
+        long deadline = System.nanoTime() + 25_000_000L;
+        long[] expired = new long[1];
+        timer.add(new Timeout(() -> expired[0] = System.nanoTime(), deadline));
+        AtomicInteger early = new AtomicInteger();
+        timer.add(new Timeout(early::incrementAndGet, System.nanoTime() + 2_000_000L));
+
+        drive(timer, () -> expired[0] != 0);
+        assertTrue(expired[0] >= deadline, "expired " + (deadline - expired[0]) + "ns early");
+        assertEquals(1, early.get());
+    }
+
+    @Test
+    void cancelledTimeoutIsRemovedImmediately() {
+        HashedWheelTimer timer = new HashedWheelTimer(10, 64);
+        AtomicInteger runs = new AtomicInteger();
+        Timeout timeout = new Timeout(runs::incrementAndGet, System.nanoTime() + 60_000_000_000L);
+        timer.add(timeout);
+        assertTrue(timer.nextTimeoutMillis() > 0);
+
+        assertTrue(timeout.cancel());
+        timer.remove(timeout);
+        assertEquals(0, timer.nextTimeoutMillis()); // 더 이상 tick마다 깨어날 필요가 없다.
+        assertTrue(timeout.isCancelled());
+        assertFalse(timeout.cancel());
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    void timeoutCancelledByOtherThreadIsRemovedByLoop() throws Exception {
+        HashedWheelTimer timer = new HashedWheelTimer(10, 64);
+        Timeout timeout = new Timeout(() -> fail("cancelled timeout ran"), System.nanoTime() + 60_000_000_000L);
+        timer.add(timeout);
+
+        Thread other = new Thread(() -> {
+            timeout.cancel();
+            timer.removeLater(timeout);
+        });
+        other.start();
+        other.join();
+
+        assertEquals(0, timer.nextTimeoutMillis());
+    }
+
+    @Test
+    void cancelDuringExpireDoesNotBreakBucket() throws Exception {
+        HashedWheelTimer timer = new HashedWheelTimer(1, 64);
+        long deadline = System.nanoTime() + 5_000_000L;
+        List<String> runs = new ArrayList<>();
+        Timeout[] second = new Timeout[1];
+        timer.add(new Timeout(() -> {
+            runs.add("first");
+            second[0].cancel();
+            timer.remove(second[0]); // 같은 bucket을 처리하는 중에 취소한다.
+        }, deadline));
+        second[0] = new Timeout(() -> runs.add("second"), deadline);
+        timer.add(second[0]);
+        timer.add(new Timeout(() -> runs.add("third"), deadline));
+
+        drive(timer, () -> runs.size() >= 2);
+        assertEquals(List.of("first", "third"), runs);
+        assertEquals(0, timer.nextTimeoutMillis());
+    }
+
+    @Test
+    void timeoutAddedDuringExpireRunsLater() throws Exception {
+        HashedWheelTimer timer = new HashedWheelTimer(1, 64);
+        List<String> runs = new ArrayList<>();
+        timer.add(new Timeout(() -> {
+            runs.add("outer");
+            timer.add(new Timeout(() -> runs.add("inner"), System.nanoTime())); // 이미 지난 시간.
+        }, System.nanoTime()));
+
+        drive(timer, () -> !runs.isEmpty());
+        assertEquals(List.of("outer"), runs); // 처리중인 bucket에서 바로 실행되지 않는다.
+
+        drive(timer, () -> runs.size() == 2);
+        assertEquals(List.of("outer", "inner"), runs);
+    }
+
+    /**
+     * selector loop처럼 다음 tick까지 기다렸다가 expire()를 호출한다.
+     */
+    private static void drive(HashedWheelTimer timer, BooleanSupplier done) throws InterruptedException {
+        long limit = System.currentTimeMillis() + 5000;
+        while (!done.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < limit, "timer did not expire");
+            Thread.sleep(Math.max(1, timer.nextTimeoutMillis()));
+            timer.expire();
+        }
+    }
+}
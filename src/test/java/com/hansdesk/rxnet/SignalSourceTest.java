@@ -0,0 +1,41 @@
+package com.hansdesk.rxnet;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SignalSourceTest {
+
+    @Test
+    void loopsWithSameThreadNameRegisterSeparateMBeans() throws Exception {
+        ThreadFactory sameName = runnable -> {
+            Thread thread = new Thread(runnable, "rxnet-test-loop");
+            thread.setDaemon(true);
+            return thread;
+        };
+        SignalSourceGroup first = SignalSources.newGroupWithThreadFactory(1, sameName);
+        SignalSourceGroup second = SignalSources.newGroupWithThreadFactory(1, sameName);
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName pattern = new ObjectName("com.hansdesk.rxnet:type=SignalSource,*");
+            long deadline = System.currentTimeMillis() + 5000;
+            while ((count(server, pattern) < 2) && (System.currentTimeMillis() < deadline))
+                Thread.sleep(10);
+            assertEquals(2, count(server, pattern));
+        } finally {
+            first.stop();
+            second.stop();
+        }
+    }
+
+    private static long count(MBeanServer server, ObjectName pattern) {
+        return server.queryNames(pattern, null).stream()
+                .filter(name -> ObjectName.unquote(name.getKeyProperty("name")).startsWith("rxnet-test-loop#"))
+                .count();
+    }
+}
@@ -0,0 +1,175 @@
+package com.hansdesk.rxnet;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TcpChannelTest {
+
+    @Test
+    void stopInsideOnInbound() throws Exception {
+        AtomicInteger stops = new AtomicInteger();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        CountDownLatch stopped = new CountDownLatch(1);
+
+        TcpServer server = Servers.newTcpServer()
+                .host("127.0.0.1")
+                .port(0)
+                .channelHandler(new Handler() {
+                    @Override
+                    public void onInbound(Channel channel, Buffer buffer) {
+                        channel.stop();
+                    }
+
+                    @Override
+                    public void onStop(Channel channel) {
+                        stops.incrementAndGet();
+                        stopped.countDown();
+                    }
+
+                    @Override
+                    public void onError(Channel channel, Throwable e) {
+                        error.set(e);
+                    }
+                });
+        server.start();
+        try (Socket socket = new Socket("127.0.0.1", server.localPort())) {
+            socket.getOutputStream().write(new byte[100]);
+
+            assertTrue(stopped.await(5, TimeUnit.SECONDS));
+            socket.setSoTimeout(5000);
+            InputStream in = socket.getInputStream();
+            assertEquals(-1, in.read()); // server가 connection을 닫았다.
+            Thread.sleep(100);
+            assertEquals(1, stops.get());
+            assertNull(error.get());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void writeFromOtherThreadUpdatesWritability() throws Exception {
+        CompletableFuture<Channel> started = new CompletableFuture<>();
+        List<Boolean> changes = new CopyOnWriteArrayList<>();
+
+        TcpServer server = Servers.newTcpServer()
+                .host("127.0.0.1")
+                .port(0)
+                .writeBufferWaterMark(1024, 4096)
+                .channelHandler(new Handler() {
+                    @Override
+                    public void onStart(Channel channel) {
+                        started.complete(channel);
+                    }
+
+                    @Override
+                    public void onWritabilityChanged(Channel channel, boolean writable) {
+                        changes.add(writable);
+                    }
+                });
+        server.start();
+        try (Socket socket = new Socket("127.0.0.1", server.localPort())) {
+            Channel channel = started.get(5, TimeUnit.SECONDS);
+
+            // selector thread를 잡아두면 write()된 데이터는 task queue에만 쌓인다.
+            CountDownLatch blocked = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            channel.schedule(0, () -> {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+            for (int inx = 0; inx < 3; inx++) {
+                Buffer buffer = new Buffer(BufferAllocators.pooled(), 2048);
+                buffer.write(new byte[2048]);
+                channel.write(buffer);
+                buffer.release();
+            }
+            channel.flush();
+            assertEquals(6144, channel.pendingOutboundBytes());
+            assertFalse(channel.isWritable());
+
+            release.countDown();
+            InputStream in = socket.getInputStream();
+            socket.setSoTimeout(5000);
+            int received = 0;
+            byte[] data = new byte[8192];
+            while (received < 6144)
+                received += in.read(data);
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!channel.isWritable() && (System.currentTimeMillis() < deadline))
+                Thread.sleep(10);
+            assertTrue(channel.isWritable());
+            assertEquals(0, channel.pendingOutboundBytes());
+            Thread.sleep(100);
+            assertEquals(List.of(false, true), changes);
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void writeFromOnOutbound() throws Exception {
+        CompletableFuture<Channel> started = new CompletableFuture<>();
+        AtomicInteger outbounds = new AtomicInteger();
+
+        TcpServer server = Servers.newTcpServer()
+                .host("127.0.0.1")
+                .port(0)
+                .channelHandler(new Handler() {
+                    @Override
+                    public void onStart(Channel channel) {
+                        Buffer buffer = new Buffer(BufferAllocators.pooled(), 16);
+                        buffer.write("hello".getBytes());
+                        channel.write(buffer);
+                        buffer.release();
+                        started.complete(channel);
+                    }
+
+                    @Override
+                    public void onOutbound(Channel channel, Buffer buffer) {
+                        if (outbounds.getAndIncrement() == 0) { // 처음 전송되는 데이터 뒤에 trailer를 붙인다.
+                            Buffer trailer = new Buffer(BufferAllocators.pooled(), 16);
+                            trailer.write("!".getBytes());
+                            channel.write(trailer);
+                            trailer.release();
+                        }
+                    }
+                });
+        server.start();
+        try (Socket socket = new Socket("127.0.0.1", server.localPort())) {
+            Channel channel = started.get(5, TimeUnit.SECONDS);
+            socket.setSoTimeout(5000);
+            InputStream in = socket.getInputStream();
+            byte[] data = new byte[6];
+            int received = 0;
+            while (received < data.length)
+                received += in.read(data, received, data.length - received);
+            assertEquals("hello!", new String(data));
+
+            // onOutbound()에서 write()한 데이터가 두 번 계산되면 전송이 끝나도 대기 byte가 남아서 flush()가 멈추지 않는다.
+            CompletableFuture<Long> pending = new CompletableFuture<>();
+            channel.schedule(0, () -> pending.complete(channel.pendingOutboundBytes()));
+            assertEquals(0, pending.get(5, TimeUnit.SECONDS));
+        } finally {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.hansdesk.rxnet;
+
+import com.hansdesk.rxnet.tcp.handler.DatagramHandler;
+import org.junit.jupiter.api.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UdpChannelTest {
+
+    @Test
+    void sendEmptyDatagram() throws Exception {
+        int port;
+        try (DatagramSocket probe = new DatagramSocket(0)) {
+            port = probe.getLocalPort();
+        }
+
+        Server server = Servers.newUdpServer()
+                .host("127.0.0.1")
+                .port(port)
+                .handler(new DatagramHandler() {
+                    @Override
+                    public void onRead(UdpChannel channel, SocketAddress sender, Buffer datagram) {
+                        channel.send(sender, new Buffer(BufferAllocators.pooled(), 16)); // 빈 datagram.
+                        Buffer reply = new Buffer(BufferAllocators.pooled(), 16);
+                        reply.write(new byte[] { 'x' });
+                        channel.send(sender, reply);
+                        reply.release();
+                    }
+                })
+                .start();
+        try (DatagramSocket socket = new DatagramSocket()) {
+            socket.setSoTimeout(5000);
+            socket.send(new DatagramPacket(new byte[] { 'E' }, 1, new InetSocketAddress("127.0.0.1", port)));
+
+            DatagramPacket packet = new DatagramPacket(new byte[16], 16);
+            socket.receive(packet);
+            assertEquals(0, packet.getLength());
+
+            packet.setLength(16);
+            socket.receive(packet); // 빈 datagram 뒤의 datagram도 전송된다.
+            assertEquals(1, packet.getLength());
+            assertEquals('x', packet.getData()[0]);
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void repliesKeepDatagramBoundaries() throws Exception {
+        int port;
+        try (DatagramSocket probe = new DatagramSocket(0)) {
+            port = probe.getLocalPort();
+        }
+
+        Server server = Servers.newUdpServer()
+                .host("127.0.0.1")
+                .port(port)
+                .handler(new DatagramHandler() {
+                    @Override
+                    public void onRead(UdpChannel channel, SocketAddress sender, Buffer datagram) {
+                        for (byte reply : new byte[] { 'a', 'b' }) { // 같은 flush로 전송되지만 합쳐지지 않는다.
+                            Buffer buffer = new Buffer(BufferAllocators.pooled(), 16);
+                            buffer.write(reply);
+                            channel.send(sender, buffer);
+                            buffer.release();
+                        }
+                    }
+                })
+                .start();
+        try (DatagramSocket socket = new DatagramSocket()) {
+            socket.setSoTimeout(5000);
+            socket.send(new DatagramPacket(new byte[] { 'E' }, 1, new InetSocketAddress("127.0.0.1", port)));
+
+            for (byte expected : new byte[] { 'a', 'b' }) {
+                DatagramPacket packet = new DatagramPacket(new byte[16], 16);
+                socket.receive(packet);
+                assertEquals(1, packet.getLength());
+                assertEquals(expected, packet.getData()[0]);
+            }
+        } finally {
+            server.stop();
+        }
+    }
+}
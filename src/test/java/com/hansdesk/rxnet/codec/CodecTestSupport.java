@@ -0,0 +1,116 @@
+package com.hansdesk.rxnet.codec;
+
+import com.hansdesk.rxnet.Buffer;
+import com.hansdesk.rxnet.BufferAllocators;
+import com.hansdesk.rxnet.Channel;
+import com.hansdesk.rxnet.FileRegion;
+import com.hansdesk.rxnet.Handler;
+import com.hansdesk.rxnet.Timeout;
+
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * decoder를 socket 없이 시험하기 위한 도구들.
+ */
+class CodecTestSupport {
+    // read buffer의 chunk를 작게 해서 frame이 chunk 경계에 걸치게 한다.
+    static final int CHUNK_SIZE = 16;
+
+    /**
+     * decoder가 전달한 frame들을 문자열로 모은다.
+     */
+    static class Collector implements Handler {
+        final List<String> frames = new ArrayList<>();
+
+        @Override
+        public void onInbound(Channel channel, Buffer buffer) {
+            byte[] frame = new byte[buffer.size()];
+            buffer.read(frame);
+            frames.add(new String(frame, StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    /**
+     * decoder가 사용하는 것 외에는 아무 일도 하지 않는 channel.
+     */
+    static class NullChannel implements Channel {
+        final List<Buffer> written = new ArrayList<>();
+
+        @Override
+        public void write(Buffer buffer) {
+            Buffer copy = new Buffer(BufferAllocators.pooled(), Math.max(1, buffer.size()));
+            copy.transferFrom(buffer);
+            written.add(copy);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public FileRegion sendFile(FileChannel file, long position, long count) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public Timeout schedule(long delayMillis, Runnable task) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public boolean isWritable() {
+            return true;
+        }
+
+        @Override
+        public long pendingOutboundBytes() {
+            return 0;
+        }
+
+        @Override
+        public Handler handler() {
+            return null;
+        }
+    }
+
+    /**
+     * data를 step byte씩 나누어서 read된 것처럼 decoder로 전달한다.
+     *
+     * @return decode되지 않고 read buffer에 남은 byte 수.
+     */
+    static int feed(Handler decoder, Channel channel, byte[] data, int step) {
+        Buffer in = new Buffer(BufferAllocators.pooled(), CHUNK_SIZE);
+        try {
+            for (int offset = 0; offset < data.length; offset += step) {
+                in.write(data, offset, Math.min(step, data.length - offset));
+                decoder.onInbound(channel, in);
+            }
+            return in.size();
+        } finally {
+            in.release();
+        }
+    }
+
+    static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    static String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder(count);
+        for (int inx = 0; inx < count; inx++)
+            builder.append(c);
+        return builder.toString();
+    }
+}
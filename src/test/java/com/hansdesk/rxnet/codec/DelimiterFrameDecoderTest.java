@@ -0,0 +1,79 @@
+package com.hansdesk.rxnet.codec;
+
+import com.hansdesk.rxnet.Buffer;
+import com.hansdesk.rxnet.BufferAllocators;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.hansdesk.rxnet.codec.CodecTestSupport.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DelimiterFrameDecoderTest {
+
+    @Test
+    void framesSplitAcrossReadsAndChunks() {
+        String long1 = repeat('a', 40);
+        String long2 = repeat('b', 17);
+        byte[] wire = bytes(long1 + "XYZ" + "XY" + "XYZ" + long2 + "XYZ" + "XYZ");
+
+        for (int step = 1; step <= wire.length; step++) {
+            Collector collector = new Collector();
+            int left = feed(new DelimiterFrameDecoder(100, bytes("XYZ"), true, collector), new NullChannel(), wire, step);
+            assertEquals(List.of(long1, "XY", long2, ""), collector.frames, "step " + step);
+            assertEquals(0, left);
+        }
+    }
+
+    @Test
+    void keepsDelimiterWhenNotStripped() {
+        Collector collector = new Collector();
+        byte[] wire = bytes("ab||cd||");
+        feed(new DelimiterFrameDecoder(100, bytes("||"), false, collector), new NullChannel(), wire, wire.length);
+
+        assertEquals(List.of("ab||", "cd||"), collector.frames);
+    }
+
+    @Test
+    void partialDelimiterIsScannedAgainAfterNextRead() {
+        // 앞의 read에서 구분자의 앞부분만 받았으면 다음 read에서 그 위치부터 다시 확인해야 한다.
+        Collector collector = new Collector();
+        DelimiterFrameDecoder decoder = new DelimiterFrameDecoder(100, bytes("XYZ"), true, collector);
+        NullChannel channel = new NullChannel();
+        Buffer in = new Buffer(BufferAllocators.pooled(), CHUNK_SIZE);
+        try {
+            in.write(bytes("abcXY"));
+            decoder.onInbound(channel, in);
+            assertTrue(collector.frames.isEmpty());
+
+            in.write(bytes("Zdef"));
+            decoder.onInbound(channel, in);
+            assertEquals(List.of("abc"), collector.frames);
+
+            in.write(bytes("X"));
+            decoder.onInbound(channel, in);
+            in.write(bytes("YZ"));
+            decoder.onInbound(channel, in);
+            assertEquals(List.of("abc", "def"), collector.frames);
+            assertEquals(0, in.size());
+        } finally {
+            in.release();
+        }
+    }
+
+    @Test
+    void tooLongFrameIsRejectedBeforeDelimiterArrives() {
+        // 끝의 2 byte는 구분자의 시작일 수 있으므로 maxFrameLength + 2 byte까지는 기다린다.
+        assertEquals(6, feed(new DelimiterFrameDecoder(4, bytes("XYZ"), true, new Collector()), new NullChannel(), bytes("abcdXY"), 1));
+
+        assertThrows(TooLongFrameException.class,
+                () -> feed(new DelimiterFrameDecoder(4, bytes("XYZ"), true, new Collector()), new NullChannel(), bytes("abcdefg"), 1));
+        assertThrows(TooLongFrameException.class,
+                () -> feed(new DelimiterFrameDecoder(4, bytes("XYZ"), true, new Collector()), new NullChannel(), bytes("abcdeXYZ"), 8));
+    }
+
+    @Test
+    void emptyDelimiterIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new DelimiterFrameDecoder(4, new byte[0], true));
+    }
+}
@@ -0,0 +1,30 @@
+package com.hansdesk.rxnet.codec;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.hansdesk.rxnet.codec.CodecTestSupport.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FixedLengthFrameDecoderTest {
+
+    @Test
+    void framesSplitAcrossReadsAndChunks() {
+        String a = repeat('a', 20);
+        String b = repeat('b', 20);
+        byte[] wire = bytes(a + b + "cc");
+
+        for (int step : new int[] { 1, 7, 20, 42 }) {
+            Collector collector = new Collector();
+            int left = feed(new FixedLengthFrameDecoder(20, collector), new NullChannel(), wire, step);
+            assertEquals(List.of(a, b), collector.frames, "step " + step);
+            assertEquals(2, left);
+        }
+    }
+
+    @Test
+    void frameLengthMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new FixedLengthFrameDecoder(0));
+    }
+}
@@ -0,0 +1,105 @@
+package com.hansdesk.rxnet.codec;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.hansdesk.rxnet.codec.CodecTestSupport.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LengthFieldFrameDecoderTest {
+
+    @Test
+    void framesSplitAcrossReadsAndChunks() {
+        List<String> expected = new ArrayList<>();
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        for (int length : new int[] { 0, 1, 15, 16, 17, 100, 300 }) {
+            String payload = repeat((char) ('a' + expected.size()), length);
+            expected.add(payload);
+            wire.write(length >>> 8);
+            wire.write(length);
+            wire.writeBytes(bytes(payload));
+        }
+
+        for (int step : new int[] { 1, 3, 7, 64 }) {
+            Collector collector = new Collector();
+            int left = feed(new LengthFieldFrameDecoder(1000, 2, collector), new NullChannel(), wire.toByteArray(), step);
+            assertEquals(expected, collector.frames, "step " + step);
+            assertEquals(0, left);
+        }
+    }
+
+    @Test
+    void severalFramesInOneRead() {
+        Collector collector = new Collector();
+        byte[] wire = { 0, 2, 'a', 'b', 0, 1, 'c', 0, 3, 'd', 'e', 'f', 0, 5, 'g' };
+        int left = feed(new LengthFieldFrameDecoder(100, 2, collector), new NullChannel(), wire, wire.length);
+
+        assertEquals(List.of("ab", "c", "def"), collector.frames);
+        assertEquals(3, left); // 완성되지 않은 마지막 frame은 남아있다.
+    }
+
+    @Test
+    void tooLongFrameIsRejectedBeforePayloadArrives() {
+        Collector collector = new Collector();
+        byte[] header = { 0x03, (byte) 0xe8 }; // 1000 byte payload.
+
+        assertThrows(TooLongFrameException.class,
+                () -> feed(new LengthFieldFrameDecoder(100, 2, collector), new NullChannel(), header, header.length));
+        assertTrue(collector.frames.isEmpty());
+    }
+
+    @Test
+    void maxFrameLengthIncludesHeader() {
+        byte[] wire = { 0, 8, 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h' };
+
+        Collector collector = new Collector();
+        feed(new LengthFieldFrameDecoder(10, 2, collector), new NullChannel(), wire, wire.length);
+        assertEquals(List.of("abcdefgh"), collector.frames);
+
+        assertThrows(TooLongFrameException.class,
+                () -> feed(new LengthFieldFrameDecoder(9, 2, new Collector()), new NullChannel(), wire, wire.length));
+    }
+
+    @Test
+    void lengthAdjustmentAndInitialBytesToStrip() {
+        // length field 값이 header를 포함하고, header는 그대로 전달한다.
+        Collector whole = new Collector();
+        byte[] wire = { 0, 5, 'a', 'b', 'c' };
+        feed(new LengthFieldFrameDecoder(100, 0, 2, ByteOrder.BIG_ENDIAN, -2, 0, whole), new NullChannel(), wire, 1);
+        assertEquals(List.of("\0\5abc"), whole.frames);
+
+        // 1 byte type 뒤에 length field가 있고, type과 length field를 모두 제거한다.
+        Collector stripped = new Collector();
+        byte[] typed = { 'T', 0, 2, 'x', 'y', 'U', 0, 1, 'z' };
+        feed(new LengthFieldFrameDecoder(100, 1, 2, ByteOrder.BIG_ENDIAN, 0, 3, stripped), new NullChannel(), typed, 2);
+        assertEquals(List.of("xy", "z"), stripped.frames);
+
+        // type만 제거하고 length field부터 전달한다.
+        Collector typeKept = new Collector();
+        feed(new LengthFieldFrameDecoder(100, 1, 2, ByteOrder.BIG_ENDIAN, 0, 1, typeKept), new NullChannel(), typed, typed.length);
+        assertEquals(List.of("\0\2xy", "\0\1z"), typeKept.frames);
+    }
+
+    @Test
+    void littleEndianLengthField() {
+        Collector collector = new Collector();
+        byte[] wire = new byte[4 + 300];
+        wire[0] = (byte) 300;
+        wire[1] = (byte) (300 >>> 8);
+        feed(new LengthFieldFrameDecoder(1000, 0, 4, ByteOrder.LITTLE_ENDIAN, 0, 4, collector), new NullChannel(), wire, 5);
+
+        assertEquals(1, collector.frames.size());
+        assertEquals(300, collector.frames.get(0).length());
+    }
+
+    @Test
+    void negativeFrameLengthIsRejected() {
+        byte[] wire = { 0, 1 };
+        assertThrows(DecoderException.class, () -> feed(
+                new LengthFieldFrameDecoder(100, 0, 2, ByteOrder.BIG_ENDIAN, -4, 0, new Collector()), new NullChannel(), wire, 2));
+    }
+}
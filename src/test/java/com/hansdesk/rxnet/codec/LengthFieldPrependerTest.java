@@ -0,0 +1,61 @@
+package com.hansdesk.rxnet.codec;
+
+import com.hansdesk.rxnet.Buffer;
+import com.hansdesk.rxnet.BufferAllocators;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteOrder;
+import java.util.List;
+
+import static com.hansdesk.rxnet.codec.CodecTestSupport.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LengthFieldPrependerTest {
+
+    @Test
+    void framesAreDecodedByLengthFieldFrameDecoder() {
+        NullChannel channel = new NullChannel();
+        LengthFieldPrepender prepender = new LengthFieldPrepender(4);
+        String small = repeat('s', 10);
+        String large = repeat('l', 5000); // 복사하지 않고 chunk를 넘겨받는 크기.
+        for (String text : new String[] { small, "", large }) {
+            Buffer payload = new Buffer(BufferAllocators.pooled(), 64);
+            payload.write(bytes(text));
+            prepender.write(channel, payload);
+            assertEquals(0, payload.size());
+            payload.release();
+        }
+
+        Collector collector = new Collector();
+        LengthFieldFrameDecoder decoder = new LengthFieldFrameDecoder(8192, 4, collector);
+        for (Buffer frame : channel.written) {
+            decoder.onInbound(channel, frame);
+            frame.release();
+        }
+        assertEquals(List.of(small, "", large), collector.frames);
+    }
+
+    @Test
+    void littleEndianLengthField() {
+        Buffer payload = new Buffer(BufferAllocators.pooled(), 64);
+        payload.write(new byte[300]);
+        Buffer out = new Buffer(BufferAllocators.pooled(), 64);
+        new LengthFieldPrepender(2, ByteOrder.LITTLE_ENDIAN).encode(payload, out);
+
+        assertEquals(302, out.size());
+        assertEquals(300, out.readShortLE());
+        payload.release();
+        out.release();
+    }
+
+    @Test
+    void lengthMustFitInLengthField() {
+        Buffer payload = new Buffer(BufferAllocators.pooled(), 512);
+        payload.write(new byte[256]);
+        Buffer out = new Buffer(BufferAllocators.pooled(), 64);
+
+        assertThrows(IllegalArgumentException.class, () -> new LengthFieldPrepender(1).encode(payload, out));
+        payload.release();
+        out.release();
+    }
+}
@@ -0,0 +1,46 @@
+package com.hansdesk.rxnet.codec;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.hansdesk.rxnet.codec.CodecTestSupport.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LineFrameDecoderTest {
+
+    @Test
+    void stripsLfAndCrLf() {
+        String longLine = repeat('x', 50);
+        byte[] wire = bytes("first\nsecond\r\n\n" + longLine + "\r\nlast\r");
+
+        for (int step = 1; step <= wire.length; step++) {
+            Collector collector = new Collector();
+            int left = feed(new LineFrameDecoder(100, collector), new NullChannel(), wire, step);
+            assertEquals(List.of("first", "second", "", longLine), collector.frames, "step " + step);
+            assertEquals(5, left); // "\n"이 오지 않은 마지막 line은 남아있다.
+        }
+    }
+
+    @Test
+    void crIsAllowedOnlyAsLineEnd() {
+        Collector collector = new Collector();
+        feed(new LineFrameDecoder(3, collector), new NullChannel(), bytes("abc\r\n"), 5);
+        assertEquals(List.of("abc"), collector.frames);
+
+        // '\r' 대신 내용이 1 byte 더 있으면 거부한다.
+        assertThrows(TooLongFrameException.class,
+                () -> feed(new LineFrameDecoder(3, new Collector()), new NullChannel(), bytes("abcd\n"), 5));
+        assertThrows(TooLongFrameException.class,
+                () -> feed(new LineFrameDecoder(3, new Collector()), new NullChannel(), bytes("abcd\r\n"), 6));
+    }
+
+    @Test
+    void tooLongLineIsRejectedBeforeLf() {
+        // 4번째 byte는 '\r'일 수 있으므로 기다린다.
+        assertEquals(4, feed(new LineFrameDecoder(3, new Collector()), new NullChannel(), bytes("abcd"), 1));
+
+        assertThrows(TooLongFrameException.class,
+                () -> feed(new LineFrameDecoder(3, new Collector()), new NullChannel(), bytes("abcde"), 1));
+    }
+}